@@ -1,9 +1,18 @@
 package dev.binclub.binscure
 
 import dev.binclub.binscure.api.RootConfiguration
+import dev.binclub.binscure.classpath.ClassCache
 import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.classpath.LibraryClassPath
+import dev.binclub.binscure.classpath.MappedZip
 import dev.binclub.binscure.classpath.ClassPathIO
+import dev.binclub.binscure.classpath.OutputWriter
+import dev.binclub.binscure.classpath.PlatformClassPath
+import dev.binclub.binscure.classpath.tree.ClassNodeTreeEntry
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.metrics.*
+import dev.binclub.binscure.processors.CachedClassLocalPass
+import dev.binclub.binscure.processors.FusedInstructionPass
 import dev.binclub.binscure.processors.arithmetic.ArithmeticSubstitutionTransformer
 import dev.binclub.binscure.processors.arithmetic.MbaTransformer
 import dev.binclub.binscure.processors.classmerge.StaticMethodMerger
@@ -30,6 +39,7 @@ import dev.binclub.binscure.processors.renaming.generation.NameGenerator
 import dev.binclub.binscure.processors.renaming.impl.LocalVariableRenamer
 import dev.binclub.binscure.processors.resources.ManifestResourceProcessor
 import dev.binclub.binscure.processors.runtime.*
+import dev.binclub.binscure.utils.RandomStreams
 import org.objectweb.asm.tree.ClassNode
 import org.objectweb.asm.tree.MethodNode
 import java.io.File
@@ -37,7 +47,14 @@ import java.io.FileNotFoundException
 import java.io.FileOutputStream
 import java.io.PrintWriter
 import java.lang.reflect.Modifier
-import java.security.SecureRandom
+import java.util.Collections
+import java.util.EnumSet
+import java.util.Random
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinWorkerThread
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+import kotlin.math.max
 
 /**
  * @author cookiedragon234 20/Jan/2020
@@ -46,18 +63,65 @@ import java.security.SecureRandom
 object CObfuscator {
 	val DEBUG = (System.getProperty("debug")?.isEmpty() == false)
 	
-	val random = SecureRandom()
-	val mappings = mutableMapOf<String, String>()
+	/**
+	 * The random stream of the current thread, see [RandomStreams]
+	 */
+	val random: Random
+		get() = RandomStreams.current
+	/**
+	 * Class name mappings of every source of the run
+	 */
+	val mappings: MutableMap<String, String> = Collections.synchronizedMap(LinkedHashMap())
 	
-	fun obfuscate(config: RootConfiguration) {
+	lateinit var pool: ForkJoinPool
+	
+	/**
+	 * The source being obfuscated on the current thread
+	 */
+	val context: ObfuscationContext
+		get() = ObfuscationContext.current()
+	
+	/**
+	 * Metrics of the current source, null unless enabled with [RootConfiguration.metrics]
+	 */
+	val metrics: ObfuscationMetrics?
+		get() = ObfuscationContext.currentOrNull()?.metrics
+	
+	/**
+	 * Cache of processed classes of the current source, null unless enabled with [RootConfiguration.cacheDirectory]
+	 */
+	val classCache: ClassCache?
+		get() = ObfuscationContext.currentOrNull()?.classCache
+	
+	/**
+	 * Obfuscates every source of [config]. A [library] class path already loaded from the configured libraries (see
+	 * [LibraryClassPath.isCurrent]) is used as is, otherwise the libraries are loaded first
+	 */
+	fun obfuscate(config: RootConfiguration, library: LibraryClassPath? = null) {
 		rootConfig = config
+		RandomStreams.reset(rootConfig.seed)
+		mappings.clear()
+		pool = ForkJoinPool(max(rootConfig.threads, 1))
+		FlightRecorder.start()
 		
-		val classPath = HashMap<String, ClassNode>()
-		ClassPathIO.loadClassPath(classPath, rootConfig.libraries)
-		
-		
-		rootConfig.sources.forEach { (input, output) ->
-			obfuscate(classPath, input, output)
+		// A class path loaded here is only used by this run
+		var loaded: LibraryClassPath? = null
+		try {
+			val classPath = library ?: LibraryClassPath(
+				rootConfig.libraries, rootConfig.libraryIndexDirectory, pool, PlatformClassPath.of(rootConfig.targetRelease)
+			).also { loaded = it }
+			
+			if (pool.parallelism <= 1 || rootConfig.sources.size <= 1) {
+				rootConfig.sources.forEach { (input, output) ->
+					obfuscate(classPath, input, output, config)
+				}
+			} else {
+				obfuscateConcurrently(classPath, config)
+			}
+		} finally {
+			loaded?.close()
+			pool.shutdown()
+			FlightRecorder.stop()
 		}
 		
 		rootConfig.mappingFile.whenNotNull { file ->
@@ -73,14 +137,49 @@ object CObfuscator {
 		}
 	}
 	
-	lateinit var classNamer: NameGenerator
-	lateinit var opaqueRuntimeManager: OpaqueRuntimeManager
-	lateinit var processorMap: Map<Class<*>, IClassProcessor>
+	/**
+	 * Every source gets its own thread to drive its pipeline, their processors share the pool
+	 */
+	private fun obfuscateConcurrently(classPath: LibraryClassPath, config: RootConfiguration) {
+		var error: Throwable? = null
+		val threads = config.sources.map { (input, output) ->
+			thread(name = "binscure ${input.name}") {
+				try {
+					obfuscate(classPath, input, output, config)
+				} catch (t: Throwable) {
+					synchronized(this) {
+						if (error == null) error = t else error!!.addSuppressed(t)
+					}
+				}
+			}
+		}
+		threads.forEach(Thread::join)
+		error?.let { throw it }
+	}
+	
+	val classNamer: NameGenerator
+		get() = context.classNamer
+	val opaqueRuntimeManager: OpaqueRuntimeManager
+		get() = context.opaqueRuntimeManager
+	val processorMap: Map<Class<*>, IClassProcessor>
+		get() = context.processorMap
 	inline fun <reified T: IClassProcessor> processor(): T {
 		return processorMap[T::class.java] as T
 	}
 	
-	fun obfuscate(classPath: Map<String, ClassNode>, input: File, output: File) {
+	/**
+	 * Obfuscates [input] into [output] with [config], which is the root configuration of every thread working on it
+	 */
+	fun obfuscate(classPath: LibraryClassPath, input: File, output: File, config: RootConfiguration = rootConfig) {
+		val context = ObfuscationContext(config, classPath, input, output)
+		ObfuscationContext.with(context) {
+			obfuscate(context)
+		}
+	}
+	
+	private fun obfuscate(context: ObfuscationContext) {
+		val input = context.input
+		val output = context.output
 		if (!input.exists())
 			throw FileNotFoundException("Input file $input does not exist")
 		println("\rObfuscating $input...")
@@ -91,13 +190,16 @@ object CObfuscator {
 				System.err.println("Warning: Output file $output already exists, will be overwritten")
 		}
 		
-		val classSources = ClassSources(classPath)
-		opaqueRuntimeManager = OpaqueRuntimeManager(classSources)
-		ClassPathIO.loadInputJar(classSources, input)
-		classSources.reconstructHierarchy()
-		classNamer = NameGenerator(rootConfig.remap.classPrefix)
+		// Processors draw their own keys and names on construction
+		RandomStreams.current = RandomStreams.stream(input.name)
+		
+		val metrics = if (rootConfig.metrics) ObfuscationMetrics(input, output, pool.parallelism) else null
+		context.metrics = metrics
+		
+		val classSources = context.classSources
+		context.classNamer = NameGenerator(rootConfig.remap.classPrefix)
 		
-		val processors = arrayOf(
+		var processors = arrayOf<IClassProcessor>(
 			DynamicVariableObfuscation(classSources),
 			
 			FieldInitializer(classSources),
@@ -134,43 +236,255 @@ object CObfuscator {
 			
 			ManifestResourceProcessor(classSources)
 		)
-		processorMap = HashMap<Class<*>, IClassProcessor>(processors.size).also {
+		context.processorMap = HashMap<Class<*>, IClassProcessor>(processors.size).also {
 			for (p in processors) {
 				it[p.javaClass] = p
 			}
 		}
-		
-		ArrayList<ClassNode>(classSources.classes.values).let { classes ->
-			if (classes.isNotEmpty()) {
-				var progress = 0f
-				for (processor in processors) {
-					try {
-						debug(processor::class.java.simpleName)
-						if (rootConfig.printProgress && processor.config.enabled) {
-							print(rootConfig.getLineChar())
-							val percentStr = ((progress / processors.size) * 100).toInt().toString().padStart(3, ' ')
-							print("$percentStr% - ${processor.progressDescription}".padEnd(100, ' '))
-						}
-						processor.process(classSources, classes, classSources.passThrough)
-					} catch (t: Throwable) {
-						println("\rException while processing [${processor.progressDescription}]:")
-						t.printStackTrace()
+		classSources.keepReaders = rootConfig.writeStackMap && processors.all { !it.enabled || it.keepsInputConstants }
+		val streaming = rootConfig.streamBatchSize > 0 && canStream(input, processors)
+		if (!streaming) {
+			metrics?.stage("read").let { stage ->
+				stage.wall {
+					stage.usage {
+						ClassPathIO.loadInputJar(classSources, input)
+						classSources.reconstructHierarchy()
 					}
-					progress += 1
 				}
-				if (rootConfig.printProgress) {
-					print(rootConfig.getLineChar())
+				stage?.record(ClassCounts(ArrayList(classSources.classes.values)))
+				stage?.bytes?.addAndGet(input.length())
+			}
+		}
+		
+		if (rootConfig.fuseInstructionPasses) {
+			processors = FusedInstructionPass.fuse(classSources, FusedInstructionPass.adjacent(processors))
+		}
+		val classCache = rootConfig.cacheDirectory?.let { directory ->
+			if (rootConfig.seed == null) {
+				println("\rWarning: The class cache requires a seed, classes will not be cached")
+				null
+			} else {
+				ClassCache(directory)
+			}
+		}
+		context.classCache = classCache
+		classCache?.let { cache ->
+			processors = CachedClassLocalPass.wrap(classSources, processors, cache)
+		}
+		
+		if (streaming) {
+			obfuscateStreaming(context, processors)
+		} else {
+			runProcessors(context, processors, ArrayList(classSources.classes.values))
+			context.opaqueRuntimeManager.getClassNodeSafe()?.let { opaque ->
+				classSources.classes[opaque.name] = opaque
+			}
+			
+			rootConfig.postProcessor(classSources.classes, classSources.passThrough)
+			
+			metrics?.stage("write").let { stage ->
+				stage?.record(ClassCounts(ArrayList(classSources.classes.values)))
+				stage.wall {
+					stage.usage {
+						ClassPathIO.writeOutput(classSources, output, stage)
+					}
 				}
+				stage?.bytes?.addAndGet(ClassPathIO.outputSize(output))
 			}
 		}
-		opaqueRuntimeManager.getClassNodeSafe()?.let { opaque ->
-			classSources.classes[opaque.name] = opaque
+		println("\rWrote obfuscated output to $output")
+		classCache?.let { cache ->
+			println("\rClass cache: ${cache.hits} hits, ${cache.misses} misses")
 		}
 		
-		rootConfig.postProcessor(classSources.classes, classSources.passThrough)
+		if (metrics != null) {
+			try {
+				metrics.write()
+				println("\rWrote metrics to ${metrics.reportFile}")
+			} catch (t: Throwable) {
+				Exception("Error writing metrics file", t).printStackTrace()
+			}
+		}
+	}
+	
+	private fun runProcessors(context: ObfuscationContext, processors: Array<IClassProcessor>, classes: ArrayList<ClassNode>) {
+		if (classes.isEmpty())
+			return
+		val classSources = context.classSources
+		val metrics = context.metrics
+		val progress = AtomicInteger()
+		// Processors are measured around each class, see ClassLocalTask.processClass
+		val measured = metrics != null || FlightRecorder.enabled
+		ProcessorScheduler(processors, measured, rootConfig.watchdog.enabled).run(pool) { processor -> ObfuscationContext.with(context) {
+			try {
+				debug(processor::class.java.simpleName)
+				if (rootConfig.printProgress && processor.config.enabled) {
+					val percentStr = ((progress.toFloat() / processors.size) * 100).toInt().toString().padStart(3, ' ')
+					print(rootConfig.getLineChar() + "$percentStr% - ${processor.progressDescription}".padEnd(100, ' '))
+				}
+				val stage = if (processor.config.enabled) metrics?.stage(processor.name) else null
+				val event = FlightRecorder.beginProcessor(processor.name)
+				stage.wall {
+					runProcessor(processor, classSources, classes, stage)
+				}
+				FlightRecorder.endProcessor(event)
+			} catch (t: Throwable) {
+				println("\rException while processing [${processor.progressDescription}]:")
+				t.printStackTrace()
+			}
+			progress.incrementAndGet()
+		} }
+		if (rootConfig.printProgress) {
+			print(rootConfig.getLineChar())
+		}
+	}
+	
+	/**
+	 * Streaming needs every enabled processor to be class local. Processors that only rewrite resources by the class
+	 * mappings are no exception, nothing is renamed without a global processor
+	 */
+	private fun canStream(input: File, processors: Array<IClassProcessor>): Boolean {
+		if (input.extension != "jar" && input.extension != "zip") {
+			println("\rWarning: Only jars can be streamed, $input will be loaded at once")
+			return false
+		}
+		// The input is then added to the class path of binscure rather than read (see ClassPathIO.loadInputJar)
+		if (rootConfig.useJavaClassloader && rootConfig.sources.size <= 1) {
+			println("\rWarning: $input is added to the class path with useJavaClassloader, it cannot be streamed")
+			return false
+		}
+		val global = processors.filter { it.enabled && !it.classLocal && !isResourceProcessor(it) }
+		if (global.isNotEmpty()) {
+			println("\rWarning: ${global.joinToString { it.name }} cannot be streamed, $input will be loaded at once")
+			return false
+		}
+		return true
+	}
+	
+	private val RESOURCE_READS = EnumSet.of(ProcessorResource.MAPPINGS, ProcessorResource.PASS_THROUGH)
+	private val PASS_THROUGH_WRITES = EnumSet.of(ProcessorResource.PASS_THROUGH)
+	
+	private fun isResourceProcessor(processor: IClassProcessor) =
+		RESOURCE_READS.containsAll(processor.reads) && PASS_THROUGH_WRITES.containsAll(processor.writes)
+	
+	/**
+	 * Obfuscates the input [RootConfiguration.streamBatchSize] classes at a time. Only the hierarchy of the input is
+	 * kept for the whole run, each batch is loaded, processed, written and released before the next one is loaded.
+	 * Resources are processed one at a time as they are passed through
+	 */
+	private fun obfuscateStreaming(context: ObfuscationContext, processors: Array<IClassProcessor>) {
+		val classSources = context.classSources
+		val metrics = context.metrics
+		val (resourceProcessors, classProcessors) = processors.partition { !it.classLocal && isResourceProcessor(it) }
+		val read = metrics?.stage("read")
+		val write = metrics?.stage("write")
 		
-		ClassPathIO.writeOutput(classSources, output)
-		println("\rWrote obfuscated output to $output")
+		MappedZip(context.input).use { jar ->
+			val entries = read.wall {
+				read.usage {
+					ClassPathIO.summariseInputJar(classSources, jar).also {
+						classSources.reconstructHierarchy()
+					}
+				}
+			}
+			read?.bytes?.addAndGet(context.input.length())
+			
+			val hierarchy = {
+				val opaque = context.opaqueRuntimeManager.getClassNodeSafe()
+				ClassCache.hierarchy(classSources.summaries.values + listOfNotNull(opaque?.let(::ClassNodeTreeEntry)))
+			}
+			OutputWriter(classSources, context.output, hierarchy, write).use { out ->
+				write.wall {
+					write.usage {
+						ClassPathIO.writePassThrough(jar, out) { resource ->
+							for (processor in resourceProcessors) {
+								RandomStreams.withStream(processor.javaClass.name) {
+									processor.process(classSources, Collections.emptyList(), resource)
+								}
+							}
+						}
+					}
+				}
+				
+				var written = 0
+				fun writeBatch(batch: List<ClassNode>) {
+					val classes = batch.associateByTo(LinkedHashMap()) { it.name }
+					val passThrough = LinkedHashMap<String, ByteArray>()
+					rootConfig.postProcessor(classes, passThrough)
+					
+					write?.record(ClassCounts(ArrayList(classes.values)))
+					write.wall {
+						write.usage {
+							for ((name, bytes) in passThrough) {
+								out.writeResource(name, bytes)
+							}
+							out.writeClasses(classes.values, written, entries.size)
+							written += classes.size
+						}
+					}
+				}
+				
+				for (batchEntries in entries.chunked(rootConfig.streamBatchSize)) {
+					val batch = read.wall {
+						read.usage {
+							ClassPathIO.loadInputClasses(classSources, jar, batchEntries)
+						}
+					}
+					read?.record(ClassCounts(batch))
+					
+					runProcessors(context, classProcessors.toTypedArray(), ArrayList(batch))
+					writeBatch(batch)
+					
+					classSources.classes.clear()
+					classSources.originalFrames.clear()
+					classSources.originalReaders.clear()
+					// Once generated the opaque runtime has to be found by the following batches, it is written last
+					context.opaqueRuntimeManager.getClassNodeSafe()?.let { opaque ->
+						classSources.classes[opaque.name] = opaque
+					}
+				}
+				
+				writeBatch(listOfNotNull(context.opaqueRuntimeManager.getClassNodeSafe()))
+				out.endProgress()
+			}
+			write?.bytes?.addAndGet(ClassPathIO.outputSize(context.output))
+		}
+	}
+	
+	private fun runProcessor(
+		processor: IClassProcessor,
+		classSources: ClassSources,
+		classes: ArrayList<ClassNode>,
+		metrics: StageMetrics?
+	) {
+		if (!processor.classLocal) {
+			val classCount = classSources.classes.size
+			metrics.usage {
+				metrics.changes(classes) {
+					RandomStreams.withStream(processor.javaClass.name) {
+						processor.process(classSources, classes, classSources.passThrough)
+					}
+				}
+			}
+			// Only processors writing the class set are ordered against every other processor that changes it
+			if (ProcessorResource.CLASS_SET in processor.writes) {
+				metrics?.classesAdded?.addAndGet((classSources.classes.size - classCount).toLong())
+			}
+		} else if (pool.parallelism > 1 && classes.size > 1) {
+			// A few batches per thread so that threads which finish early can steal work from slower ones
+			val batchSize = max(classes.size / (pool.parallelism * 4), 1)
+			val task = ClassLocalTask(processor, classSources, classes, 0, classes.size, batchSize, metrics)
+			// Processors are themselves scheduled on the pool, in which case we fork from the current worker
+			if ((Thread.currentThread() as? ForkJoinWorkerThread)?.pool === pool) {
+				task.invoke()
+			} else {
+				pool.invoke(task)
+			}
+		} else {
+			for (classNode in classes) {
+				ClassLocalTask.processClass(processor, classSources, classNode, metrics)
+			}
+		}
 	}
 	
 	inline fun noMethodInsns(methodNode: MethodNode) =
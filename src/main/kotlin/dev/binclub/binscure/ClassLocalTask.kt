@@ -0,0 +1,72 @@
+package dev.binclub.binscure
+
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.metrics.FlightRecorder
+import dev.binclub.binscure.metrics.StageMetrics
+import dev.binclub.binscure.metrics.changes
+import dev.binclub.binscure.metrics.usage
+import dev.binclub.binscure.utils.RandomStreams
+import org.objectweb.asm.tree.ClassNode
+import java.util.*
+import java.util.concurrent.RecursiveAction
+
+/**
+ * Runs a class local processor over a range of classes, recursively splitting the range in half until it is small
+ * enough to be processed as a single batch
+ *
+ * @author cook 18/Oct/2026
+ */
+class ClassLocalTask(
+	private val processor: IClassProcessor,
+	private val source: ClassSources,
+	private val classes: MutableList<ClassNode>,
+	private val from: Int,
+	private val to: Int,
+	private val batchSize: Int,
+	private val metrics: StageMetrics?
+): RecursiveAction() {
+	// Batches are forked to other workers, which may be busy with another source in between
+	private val context = ObfuscationContext.current()
+	
+	override fun compute() = ObfuscationContext.with(context) {
+		if (to - from <= batchSize) {
+			for (i in from until to) {
+				processClass(processor, source, classes[i], metrics)
+			}
+		} else {
+			val middle = (from + to) ushr 1
+			invokeAll(
+				ClassLocalTask(processor, source, classes, from, middle, batchSize, metrics),
+				ClassLocalTask(processor, source, classes, middle, to, batchSize, metrics)
+			)
+		}
+	}
+
+	companion object {
+		/**
+		 * Classes are handed to the processor one at a time, each with its own random stream, so the result is the
+		 * same whether the processor ran sequentially or split across the pool. Cpu time and allocations are measured
+		 * here, on the thread that did the work
+		 */
+		fun processClass(processor: IClassProcessor, source: ClassSources, classNode: ClassNode, metrics: StageMetrics?): Boolean {
+			val classes = Collections.singletonList(classNode)
+			val event = FlightRecorder.beginClass(processor.name, classNode)
+			val complete = metrics.usage {
+				metrics.changes(classes) {
+					RandomStreams.withStream(processor.javaClass.name, classNode.name) {
+						if (processor.watched) {
+							ProcessorWatchdog.watch(processor, classNode, metrics) {
+								processor.process(source, classes, source.passThrough)
+							}
+						} else {
+							processor.process(source, classes, source.passThrough)
+							true
+						}
+					}
+				}
+			}
+			FlightRecorder.endClass(event, classNode)
+			return complete
+		}
+	}
+}
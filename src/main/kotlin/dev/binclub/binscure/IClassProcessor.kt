@@ -3,21 +3,77 @@ package dev.binclub.binscure
 import dev.binclub.binscure.api.TransformerConfiguration
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.utils.RandomStreams
 import dev.binclub.binscure.utils.isExcluded
 import org.objectweb.asm.tree.ClassNode
 import org.objectweb.asm.tree.FieldNode
 import org.objectweb.asm.tree.MethodNode
-import java.security.SecureRandom
+import java.util.Random
 
 /**
  * @author cookiedragon234 20/Jan/2020
  */
 abstract class IClassProcessor(val source: ClassSources) {
-	val random: SecureRandom
+	val random: Random
 		get() = CObfuscator.random
 	
 	abstract val progressDescription: String
+	
+	/**
+	 * The name this processor is reported under in metrics and warnings
+	 */
+	open val name: String
+		get() = javaClass.simpleName
 	abstract val config: TransformerConfiguration
+	
+	/**
+	 * Whether this processor has anything to do with the current configuration
+	 */
+	open val enabled: Boolean
+		get() = config.enabled
+	
+	/**
+	 * Class local processors only read and modify the classes they are given, so the pipeline is free to split the
+	 * class collection into batches and process them concurrently.
+	 *
+	 * The one exception is the opaque runtime, which is generated by whichever class first needs it (see
+	 * [dev.binclub.binscure.processors.runtime.OpaqueRuntimeManager]) and takes its name from [CObfuscator.classNamer].
+	 * It is generated once under a lock and from its own random stream, and is only added to the classes once every
+	 * processor has run, so it is the same whichever thread generates it. Processors that may generate it declare
+	 * [ProcessorResource.CLASS_SET] and [ProcessorResource.OPAQUE_RUNTIME] in [writes]. They may not create any other
+	 * class
+	 */
+	open val classLocal: Boolean
+		get() = false
+	
+	/**
+	 * Whether the [ProcessorWatchdog] budgets this processor, processors that only run other processors leave it to them
+	 */
+	open val watched: Boolean
+		get() = true
+
+	/**
+	 * The shared state this processor reads and writes. Processors only wait for earlier processors that write what
+	 * they read or write, or that read what they write, everything else is free to run at the same time.
+	 * By default a processor is assumed to touch everything and will run alone.
+	 *
+	 * Anything a processor looks at counts as a read: walking the methods or fields of a class reads
+	 * [ProcessorResource.MEMBERS], checking exclusions reads [ProcessorResource.ATTRIBUTES] (exclusions may match
+	 * annotations) and checking whether a method is abstract or native reads [ProcessorResource.ACCESS]
+	 */
+	open val reads: Set<ProcessorResource>
+		get() = ProcessorResource.ALL
+	open val writes: Set<ProcessorResource>
+		get() = ProcessorResource.ALL
+
+	/**
+	 * Whether the classes this processor changes can still keep the constant pool they were read with, see
+	 * [dev.binclub.binscure.classpath.ConstantPoolCheck]. Processors that remove names or constants from every class they
+	 * process return false, the readers of the input classes are then not kept (see [ClassSources.originalReaders])
+	 */
+	open val keepsInputConstants: Boolean
+		get() = true
+
 	abstract fun process(source: ClassSources, classes: MutableCollection<ClassNode>, passThrough: MutableMap<String, ByteArray>)
 	
 	fun isExcluded(classNode: ClassNode): Boolean {
@@ -46,13 +102,16 @@ abstract class IClassProcessor(val source: ClassSources) {
 inline fun IClassProcessor.forClass(classes: Collection<ClassNode>, op: (ClassNode) -> Unit) {
 	classes.forEach { cn ->
 		if (!isExcluded(cn)) {
-			op(cn)
+			RandomStreams.withStream(javaClass.name, cn.name) {
+				op(cn)
+			}
 		}
 	}
 }
 
 inline fun IClassProcessor.forMethod(cn: ClassNode, op: (MethodNode) -> Unit) {
 	cn.methods.forEach { mn ->
+		ProcessorWatchdog.check()
 		if (!isExcluded(cn, mn)) {
 			op(mn)
 		}
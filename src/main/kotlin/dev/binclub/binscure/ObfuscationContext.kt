@@ -0,0 +1,55 @@
+package dev.binclub.binscure
+
+import dev.binclub.binscure.api.RootConfiguration
+import dev.binclub.binscure.classpath.ClassCache
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.classpath.LibraryClassPath
+import dev.binclub.binscure.configuration.ConfigurationManager
+import dev.binclub.binscure.metrics.ObfuscationMetrics
+import dev.binclub.binscure.processors.renaming.generation.NameGenerator
+import dev.binclub.binscure.processors.runtime.OpaqueRuntimeManager
+import java.io.File
+
+/**
+ * The state of obfuscating a single source. The sources of a run are obfuscated concurrently against the same
+ * [LibraryClassPath], each with its own context, which [CObfuscator] exposes for the current thread. The
+ * configuration a source is obfuscated with is [ConfigurationManager.rootConfig] on any thread in its context.
+ *
+ * Anything running on another thread on behalf of a source (processors scheduled on the pool, forked class batches)
+ * has to run inside [with] its context
+ *
+ * @author cook 18/Oct/2026
+ */
+class ObfuscationContext(
+	val config: RootConfiguration,
+	library: LibraryClassPath,
+	val input: File,
+	val output: File
+) {
+	val classSources = ClassSources(library)
+	val opaqueRuntimeManager = OpaqueRuntimeManager(classSources)
+	lateinit var classNamer: NameGenerator
+	lateinit var processorMap: Map<Class<*>, IClassProcessor>
+	var metrics: ObfuscationMetrics? = null
+	var classCache: ClassCache? = null
+
+	companion object {
+		@PublishedApi
+		internal val current = ThreadLocal<ObfuscationContext>()
+
+		fun current(): ObfuscationContext =
+			current.get() ?: throw IllegalStateException("No source is being obfuscated on ${Thread.currentThread().name}")
+
+		fun currentOrNull(): ObfuscationContext? = current.get()
+
+		inline fun <T> with(context: ObfuscationContext, block: () -> T): T {
+			val previous = current.get()
+			current.set(context)
+			try {
+				return block()
+			} finally {
+				if (previous == null) current.remove() else current.set(previous)
+			}
+		}
+	}
+}
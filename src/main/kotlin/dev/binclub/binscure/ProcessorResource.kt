@@ -0,0 +1,41 @@
+package dev.binclub.binscure
+
+import java.util.*
+
+/**
+ * Shared state that processors read and modify, see [IClassProcessor.reads] and [IClassProcessor.writes]
+ *
+ * @author cook 18/Oct/2026
+ */
+enum class ProcessorResource {
+	/** The classes of the source (adding new classes, taking new class names) */
+	CLASS_SET,
+	/** Fields and methods of classes, their names, descriptors and constant values */
+	MEMBERS,
+	/** Method instructions, try catch blocks and frames */
+	CODE,
+	/** Access flags of classes and members */
+	ACCESS,
+	/** Source file, local variable tables and parameter names */
+	DEBUG_INFO,
+	/** Annotations, signatures, inner classes, exceptions and custom attributes */
+	ATTRIBUTES,
+	/** Super classes and interfaces, and the hierarchy built from them */
+	HIERARCHY,
+	/** The opaque runtime class and its fields */
+	OPAQUE_RUNTIME,
+	/** The method secrets generated by the method parameter obfuscator */
+	METHOD_SECRETS,
+	/** Class name mappings */
+	MAPPINGS,
+	/** Non class files */
+	PASS_THROUGH;
+
+	companion object {
+		val ALL: Set<ProcessorResource> = Collections.unmodifiableSet(EnumSet.allOf(ProcessorResource::class.java))
+		val NONE: Set<ProcessorResource> = Collections.unmodifiableSet(EnumSet.noneOf(ProcessorResource::class.java))
+		/** Everything held by the class nodes themselves */
+		val CLASS_CONTENT: Set<ProcessorResource> =
+			Collections.unmodifiableSet(EnumSet.of(MEMBERS, CODE, ACCESS, DEBUG_INFO, ATTRIBUTES, HIERARCHY))
+	}
+}
@@ -0,0 +1,103 @@
+package dev.binclub.binscure
+
+import java.util.EnumSet
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * Runs processors as a graph built from their declared [IClassProcessor.reads] and [IClassProcessor.writes].
+ * A processor waits for every earlier processor it conflicts with, and runs at the same time as the rest.
+ *
+ * @author cook 18/Oct/2026
+ */
+class ProcessorScheduler(
+	private val processors: Array<out IClassProcessor>,
+	measured: Boolean = false,
+	watchdog: Boolean = false
+) {
+	/**
+	 * What each processor reads when it is run. A [measured] processor has the methods and instructions of its classes
+	 * counted before and after it runs (see [dev.binclub.binscure.metrics.changes]), which reads
+	 * [ProcessorResource.MEMBERS] and [ProcessorResource.CODE] whatever the processor itself reads. Otherwise a
+	 * processor changing them at the same time could break the count, or have its changes counted as the measured ones
+	 */
+	private val reads = Array(processors.size) { i ->
+		val processor = processors[i]
+		when {
+			watchdog && isWatched(processor) -> processor.reads + ProcessorResource.CLASS_CONTENT
+			measured -> processor.reads + MEASURED_READS
+			else -> processor.reads
+		}
+	}
+	
+	/**
+	 * What each processor writes when it is run. With the [watchdog] on, a watched processor copies every class it is
+	 * given and may put all of it back (see [ProcessorWatchdog.watch]), so it reads and writes all of the class
+	 */
+	private val writes = Array(processors.size) { i ->
+		val processor = processors[i]
+		if (watchdog && isWatched(processor)) processor.writes + ProcessorResource.CLASS_CONTENT else processor.writes
+	}
+	
+	/** For every processor, the indices of the earlier processors it has to wait for */
+	val dependencies = Array(processors.size) { after ->
+		(0 until after).filter { before -> conflicts(before, after) }.toIntArray()
+	}
+
+	init {
+		if (CObfuscator.DEBUG) {
+			checkOrdering()
+		}
+	}
+
+	/**
+	 * Runs [action] for every processor, [action] should not throw
+	 */
+	fun run(pool: ForkJoinPool, action: (IClassProcessor) -> Unit) {
+		if (pool.parallelism <= 1) {
+			processors.forEach(action)
+			return
+		}
+
+		val futures = arrayOfNulls<CompletableFuture<Void>>(processors.size)
+		for ((i, processor) in processors.withIndex()) {
+			val dependencies = dependencies[i]
+			val ready = if (dependencies.isEmpty()) {
+				CompletableFuture.completedFuture<Void>(null)
+			} else {
+				CompletableFuture.allOf(*Array(dependencies.size) { futures[dependencies[it]]!! })
+			}
+			futures[i] = ready.thenRunAsync(Runnable { action(processor) }, pool)
+		}
+		CompletableFuture.allOf(*futures).join()
+	}
+
+	/**
+	 * A processor reading state that is only generated by a later processor (method secrets, the opaque runtime...)
+	 * sees it before it is generated, which is usually an ordering mistake. Class contents are left out, as every
+	 * processor reads classes that later processors go on to change
+	 */
+	private fun checkOrdering() {
+		for ((i, processor) in processors.withIndex()) {
+			for (resource in processor.reads) {
+				if (resource in ProcessorResource.CLASS_CONTENT)
+					continue
+				for (j in i + 1 until processors.size) {
+					if (resource in processors[j].writes) {
+						println("\rWarning: ${processor::class.java.simpleName} reads $resource before ${processors[j]::class.java.simpleName} writes it")
+					}
+				}
+			}
+		}
+	}
+
+	private fun conflicts(before: Int, after: Int): Boolean =
+		writes[before].any { it in reads[after] || it in writes[after] } || reads[before].any { it in writes[after] }
+	
+	companion object {
+		private val MEASURED_READS = EnumSet.of(ProcessorResource.MEMBERS, ProcessorResource.CODE)
+		
+		/** Only class local processors are run through the watchdog, see [ClassLocalTask.processClass] */
+		private fun isWatched(processor: IClassProcessor) = processor.classLocal && processor.watched
+	}
+}
@@ -0,0 +1,124 @@
+package dev.binclub.binscure
+
+import dev.binclub.binscure.api.WatchdogConfiguration
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.metrics.StageMetrics
+import dev.binclub.binscure.utils.replaceWith
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodNode
+import java.util.EnumSet
+import java.util.IdentityHashMap
+
+/**
+ * Bounds the time and the instruction growth of a class local processor on a single class, see
+ * [WatchdogConfiguration].
+ *
+ * The class is copied before the processor runs. Methods that grew past the growth budget are put back to their copy
+ * once the processor is done, or the whole class is if the processor also changed it outside of method bodies (a
+ * method can depend on fields or methods added along with it). The time budget is checked by the processors
+ * themselves, which call [check] before each method (and each round of repeated rewriting): once it is exceeded the
+ * processor is stopped and the whole class is put back, since the processor may have been stopped half way through a
+ * method.
+ *
+ * Copying and putting back a class reads and writes all of it, which [ProcessorScheduler] accounts for. The original
+ * frames of the methods put back are moved to their copies, see [ClassSources.originalFrames].
+ *
+ * @author cook 18/Oct/2026
+ */
+object ProcessorWatchdog {
+	private class Budget(val deadline: Long)
+
+	private val budget = ThreadLocal<Budget>()
+
+	/**
+	 * Thrown by [check] to stop a processor, without a stack trace since it is always caught by [watch]
+	 */
+	private class TimeBudgetExceeded: RuntimeException(null, null, false, false)
+
+	/**
+	 * Stops the current processor if it is over its time budget for the class being processed
+	 */
+	fun check() {
+		val budget = budget.get() ?: return
+		if (System.nanoTime() - budget.deadline > 0) {
+			throw TimeBudgetExceeded()
+		}
+	}
+
+	/**
+	 * Runs [process] on [classNode] within the budgets, returns false if the processor ran out of time and the class was
+	 * put back as it was
+	 */
+	fun watch(processor: IClassProcessor, classNode: ClassNode, metrics: StageMetrics?, process: () -> Unit): Boolean {
+		val config = rootConfig.watchdog
+		if (!config.enabled || budget.get() != null) {
+			process()
+			return true
+		}
+
+		val snapshot = ClassNode().also(classNode::accept)
+		val verify = classNode.verify
+		val methods = IdentityHashMap<MethodNode, MethodNode>(classNode.methods.size)
+		for ((i, method) in classNode.methods.withIndex()) {
+			methods[method] = snapshot.methods[i]
+		}
+
+		val start = System.nanoTime()
+		budget.set(Budget(start + config.timeBudget * 1_000_000))
+		try {
+			process()
+		} catch (e: TimeBudgetExceeded) {
+			println("\rWarning: ${processor.name} ran out of time on ${classNode.niceName} after ${(System.nanoTime() - start) / 1_000_000}ms, class rolled back")
+			classNode.replaceWith(snapshot)
+			classNode.verify = verify
+			moveFrames(processor, methods)
+			metrics?.rolledBack?.addAndGet(classNode.methods.size.toLong())
+			return false
+		} finally {
+			budget.remove()
+		}
+
+		val methodLocal = METHOD_LOCAL.containsAll(processor.writes)
+		for ((i, method) in classNode.methods.withIndex()) {
+			val before = methods[method] ?: continue
+			val beforeSize = before.instructions.size()
+			val afterSize = method.instructions.size()
+			if (afterSize - beforeSize > config.growthAllowance && afterSize > beforeSize * config.maxGrowth) {
+				val signature = "${classNode.niceName}.${method.name}${method.desc}"
+				if (methodLocal) {
+					println("\rWarning: ${processor.name} grew $signature from $beforeSize to $afterSize instructions, method rolled back")
+					classNode.methods[i] = before
+					moveFrames(processor, mapOf(method to before))
+					metrics?.rolledBack?.incrementAndGet()
+				} else {
+					println("\rWarning: ${processor.name} grew $signature from $beforeSize to $afterSize instructions, class rolled back")
+					classNode.replaceWith(snapshot)
+					classNode.verify = verify
+					moveFrames(processor, methods)
+					metrics?.rolledBack?.addAndGet(classNode.methods.size.toLong())
+					break
+				}
+			}
+		}
+		return true
+	}
+	
+	/**
+	 * Moves the original frames of each method of [copies] to its copy. The copy has the instructions the method had
+	 * when it was copied, so its frames still fit it if they fitted the method then
+	 */
+	private fun moveFrames(processor: IClassProcessor, copies: Map<MethodNode, MethodNode>) {
+		val frames = processor.source.originalFrames
+		if (frames.isEmpty())
+			return
+		for ((method, copy) in copies) {
+			frames.remove(method)?.let { frames[copy] = it }
+		}
+	}
+	
+	/**
+	 * Processors only writing these change nothing but method bodies, so their methods can be rolled back one by one
+	 */
+	private val METHOD_LOCAL = EnumSet.of(ProcessorResource.CODE, ProcessorResource.DEBUG_INFO, ProcessorResource.OPAQUE_RUNTIME)
+}
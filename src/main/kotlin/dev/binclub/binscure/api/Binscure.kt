@@ -11,7 +11,13 @@ import java.io.FileNotFoundException
  */
 object Binscure {
 	@JvmStatic
-	fun main(args: Array<String>) = obfuscate(args)
+	fun main(args: Array<String>) {
+		if (args.firstOrNull() == "--daemon") {
+			BinscureDaemon.run(args.drop(1))
+		} else {
+			obfuscate(args)
+		}
+	}
 	
 	fun obfuscate(args: Array<String>) {
 		val configFile = File(args.firstOrNull() ?: throw IllegalArgumentException("A config file must be provided"))
@@ -0,0 +1,145 @@
+package dev.binclub.binscure.api
+
+import dev.binclub.binscure.CObfuscator
+import dev.binclub.binscure.classpath.LibraryClassPath
+import dev.binclub.binscure.classpath.PlatformClassPath
+import dev.binclub.binscure.configuration.ConfigurationManager
+import java.io.*
+import java.net.ProtocolFamily
+import java.net.SocketAddress
+import java.net.StandardProtocolFamily
+import java.nio.channels.Channels
+import java.nio.channels.ServerSocketChannel
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Runs obfuscation jobs in a warm JVM, keeping the parsed libraries resident between them.
+ *
+ * Started with `--daemon <config> [socket]`, jobs are read from the unix socket if given, otherwise from stdin. Each
+ * line is a job: either a config file, or an input and an output path to obfuscate with the daemon's config. Every
+ * job is answered with a single line, `OK <millis>` or `ERROR <message>`, and `exit` stops the daemon.
+ *
+ * Jobs run one at a time. The libraries are loaded again only when a job uses different ones, or when they change on
+ * disk.
+ *
+ * @author cook 18/Oct/2026
+ */
+object BinscureDaemon {
+	private var library: LibraryClassPath? = null
+
+	fun run(args: List<String>) {
+		val configFile = File(args.firstOrNull() ?: throw IllegalArgumentException("A config file must be provided"))
+		if (!configFile.exists()) {
+			throw FileNotFoundException("Config File [$configFile] does not exist")
+		}
+		val socket = args.getOrNull(1)?.let(::File)
+		run(ConfigurationManager.parse(configFile), socket)
+	}
+
+	fun run(config: RootConfiguration, socket: File?) {
+		library = LibraryClassPath(
+			config.libraries, config.libraryIndexDirectory, platform = PlatformClassPath.of(config.targetRelease)
+		)
+		try {
+			if (socket == null) {
+				// Obfuscation prints its progress, which must not be mistaken for replies
+				val replies = PrintStream(FileOutputStream(FileDescriptor.out), true)
+				System.setOut(System.err)
+				serve(config, System.`in`.bufferedReader(), replies)
+			} else {
+				listen(config, socket)
+			}
+		} finally {
+			library?.close()
+			library = null
+		}
+	}
+
+	private fun listen(config: RootConfiguration, socket: File) {
+		Files.deleteIfExists(socket.toPath())
+		val server = openUnixSocket(socket.toPath())
+		println("\rListening for jobs on $socket")
+		try {
+			while (true) {
+				val stop = server.accept().use { channel ->
+					val reader = BufferedReader(InputStreamReader(Channels.newInputStream(channel)))
+					val replies = PrintStream(Channels.newOutputStream(channel), true)
+					serve(config, reader, replies)
+				}
+				if (stop) break
+			}
+		} finally {
+			server.close()
+			Files.deleteIfExists(socket.toPath())
+		}
+	}
+
+	/**
+	 * Unix domain sockets need Java 16, so they are looked up reflectively to keep the rest of binscure running on 8
+	 */
+	private fun openUnixSocket(path: Path): ServerSocketChannel {
+		val family: ProtocolFamily
+		val address: SocketAddress
+		try {
+			family = StandardProtocolFamily.valueOf("UNIX")
+			address = Class.forName("java.net.UnixDomainSocketAddress")
+				.getMethod("of", Path::class.java)
+				.invoke(null, path) as SocketAddress
+		} catch (t: Throwable) {
+			throw UnsupportedOperationException("Unix sockets require Java 16 or newer, pass jobs on stdin instead", t)
+		}
+		val server = ServerSocketChannel::class.java
+			.getMethod("open", ProtocolFamily::class.java)
+			.invoke(null, family) as ServerSocketChannel
+		server.bind(address)
+		return server
+	}
+
+	/**
+	 * Runs jobs until the input ends, returns true if the daemon was asked to stop
+	 */
+	private fun serve(config: RootConfiguration, jobs: BufferedReader, replies: PrintStream): Boolean {
+		while (true) {
+			val line = jobs.readLine()?.trim() ?: return false
+			if (line.isEmpty())
+				continue
+			if (line == "exit")
+				return true
+
+			val start = System.currentTimeMillis()
+			try {
+				runJob(config, line)
+				replies.println("OK ${System.currentTimeMillis() - start}")
+			} catch (t: Throwable) {
+				t.printStackTrace()
+				replies.println("ERROR ${t.toString().replace('\n', ' ')}")
+			}
+		}
+	}
+
+	private fun runJob(config: RootConfiguration, line: String) {
+		val paths = line.split('\t').takeIf { it.size > 1 } ?: line.split(' ')
+		val jobConfig = when (paths.size) {
+			1 -> {
+				val configFile = File(paths[0])
+				if (!configFile.exists()) {
+					throw FileNotFoundException("Config File [$configFile] does not exist")
+				}
+				ConfigurationManager.parse(configFile)
+			}
+			2 -> config.copy(sources = listOf(CodeSource(File(paths[0]), File(paths[1]))))
+			else -> throw IllegalArgumentException("Expected a config file, or an input and an output path")
+		}
+
+		val library = library?.takeIf { it.isCurrent(jobConfig.libraries, jobConfig.targetRelease) }
+			?: LibraryClassPath(
+				jobConfig.libraries, jobConfig.libraryIndexDirectory, platform = PlatformClassPath.of(jobConfig.targetRelease)
+			).also {
+				// Otherwise the old jars stay mapped for as long as the daemon runs
+				library?.close()
+				library = it
+			}
+		CObfuscator.obfuscate(jobConfig, library)
+	}
+}
@@ -37,7 +37,35 @@ data class RootConfiguration(
 	val resetLineProgress: Boolean = true,
 	val printProgress: Boolean = true,
 	val watermark: Boolean = true,
-	val upgradeVersions: Boolean = false
+	val upgradeVersions: Boolean = false,
+	/// Number of threads used to run class local processors
+	val threads: Int = Runtime.getRuntime().availableProcessors(),
+	/// Seed for all random choices, the same seed and input produce the same output. Random if not set
+	val seed: Long? = null,
+	/// Run adjacent instruction rewriting processors together, in a single walk over each method. Local variable renaming
+	/// and number obfuscation are moved next to the other rewriters, which changes the output
+	val fuseInstructionPasses: Boolean = false,
+	/// Write a JSON report of the time, cpu time, allocations and changes of every processor next to each output
+	val metrics: Boolean = false,
+	/// Directory to cache processed classes in, unchanged classes are then loaded from it instead of processed again.
+	/// Requires a seed
+	val cacheDirectory: File? = null,
+	/// Obfuscate jars this many classes at a time, keeping only the hierarchy of the rest in memory. Requires every
+	/// enabled processor to be class local, 0 loads the whole jar at once
+	val streamBatchSize: Int = 0,
+	/// Time and instruction growth budgets for class local processors, classes and methods over budget are rolled back
+	val watchdog: WatchdogConfiguration = WatchdogConfiguration(),
+	/// Directory to keep an index of each library jar in, libraries are then read from their index instead of the jar
+	val libraryIndexDirectory: File? = null,
+	/// Deflate level of the output jar, from 0 (store every entry) to 9 (smallest). -1 is the default level
+	val compressionLevel: Int = -1,
+	/// Store classes in the output jar without compressing them
+	val storeClasses: Boolean = false,
+	/// Write each output as a directory of class and resource files instead of a jar, an existing directory is only
+	/// replaced if it is empty or was written by a previous run
+	val explodedOutput: Boolean = false,
+	/// Java release the output runs on, JDK classes are read from that release instead of the running JDK
+	val targetRelease: Int? = null
 ): TransformerConfiguration(true, exclusions) {
 	init {
 		// This might fail
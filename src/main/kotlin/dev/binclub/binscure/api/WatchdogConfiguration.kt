@@ -0,0 +1,16 @@
+package dev.binclub.binscure.api
+
+/**
+ * Budgets for a class local processor on a single class, see [dev.binclub.binscure.ProcessorWatchdog]
+ *
+ * @author cook 18/Oct/2026
+ */
+data class WatchdogConfiguration(
+	val enabled: Boolean = false,
+	/// Milliseconds a processor may spend on a single class before the class is rolled back
+	val timeBudget: Long = 10000,
+	/// Times a method may grow by a single processor before it is rolled back
+	val maxGrowth: Double = 20.0,
+	/// Instructions a method may always grow by, however small it was
+	val growthAllowance: Int = 5000
+)
@@ -0,0 +1,180 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.CObfuscator
+import dev.binclub.binscure.api.RootConfiguration
+import dev.binclub.binscure.classpath.tree.ClassTreeEntry
+import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.utils.replaceWith
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.tree.ClassNode
+import java.io.File
+import java.lang.reflect.Modifier
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * An on disk, content addressed cache of class states, used to skip class local processors and class writing for
+ * classes that have not changed since a previous run.
+ *
+ * Every key is a hash of the class state going in and of everything else the result depends on: the configuration
+ * (including the seed, which is required), the libraries, the binscure build and the java version. Entries are
+ * never invalidated, a change to any of these simply produces different keys.
+ *
+ * @author cook 18/Oct/2026
+ */
+class ClassCache(val directory: File) {
+	val hits = AtomicInteger()
+	val misses = AtomicInteger()
+
+	private val fingerprint: ByteArray = hash {
+		it.update(FORMAT)
+		// The root configuration only prints a summary of itself, so every option is read directly. Nested
+		// configurations are data classes and print all of theirs
+		for (field in RootConfiguration::class.java.declaredFields.sortedBy { field -> field.name }) {
+			if (Modifier.isStatic(field.modifiers) || field.name in UNCACHED_OPTIONS)
+				continue
+			field.isAccessible = true
+			val value = field.get(rootConfig)
+			// The post processor lambda has no stable string form
+			if (value is Function<*>)
+				continue
+			it.update("${field.name}=$value")
+		}
+		for (library in rootConfig.libraries) {
+			it.update("${library.absolutePath}:${library.length()}:${library.lastModified()}")
+		}
+		try {
+			val build = File(CObfuscator::class.java.protectionDomain.codeSource.location.toURI())
+			it.update("$build:${build.length()}:${build.lastModified()}")
+		} catch (ignored: Throwable) {}
+		it.update(System.getProperty("java.version"))
+	}
+
+	/**
+	 * Hashes the cache fingerprint together with [parts]
+	 */
+	fun key(vararg parts: Any?): ByteArray = hash {
+		it.update(fingerprint)
+		for (part in parts) {
+			when (part) {
+				is ByteArray -> it.update(part)
+				else -> it.update(part.toString())
+			}
+			it.update(0.toByte())
+		}
+	}
+
+	operator fun get(key: ByteArray): ByteArray? {
+		val file = file(key)
+		val bytes = if (file.isFile) {
+			try {
+				file.readBytes()
+			} catch (t: Throwable) {
+				null
+			}
+		} else null
+		if (bytes != null) hits.incrementAndGet() else misses.incrementAndGet()
+		return bytes
+	}
+
+	operator fun set(key: ByteArray, value: ByteArray) {
+		try {
+			val file = file(key)
+			file.parentFile.mkdirs()
+			// Write then move, so concurrent runs never see a partial entry
+			val temp = File.createTempFile(file.name, ".tmp", file.parentFile)
+			temp.writeBytes(value)
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+		} catch (t: Throwable) {
+			println("\rWarning: Could not write to class cache $directory ($t)")
+		}
+	}
+
+	/**
+	 * The written bytes of [classNode], from the cache if the same class was written before against the same
+	 * [hierarchy] (frame computation depends on the super classes of every type the class uses)
+	 */
+	fun written(classNode: ClassNode, frames: Boolean, hierarchy: ByteArray, write: () -> ByteArray?): ByteArray? {
+		val state = serialize(classNode) ?: return write()
+		val key = key("write", hierarchy, frames, classNode.verify, classNode.originalName, state)
+		this[key]?.let { return it }
+
+		return write()?.also { this[key] = it }
+	}
+
+	private fun file(key: ByteArray): File {
+		val hex = key.joinToString("") { "%02x".format(it) }
+		return File(File(directory, hex.substring(0, 2)), hex.substring(2))
+	}
+
+	companion object {
+		private const val FORMAT = "binscure class cache 2"
+
+		/** Options that do not change the output of a single class */
+		private val UNCACHED_OPTIONS = setOf(
+			"sources", "mappingFile", "printProgress", "resetLineProgress", "threads", "metrics", "cacheDirectory",
+			"streamBatchSize", "libraryIndexDirectory", "compressionLevel", "storeClasses", "explodedOutput"
+		)
+
+		private fun MessageDigest.update(string: String) = update(string.toByteArray())
+
+		private inline fun hash(block: (MessageDigest) -> Unit): ByteArray =
+			MessageDigest.getInstance("SHA-256").also(block).digest()
+
+		/**
+		 * The super class and interfaces of every class, which is all of the hierarchy a written class can depend on
+		 * besides the libraries
+		 */
+		fun hierarchy(classes: Collection<ClassNode>): ByteArray = hash {
+			for (classNode in classes.sortedBy { it.name }) {
+				it.update(classNode.name)
+				it.update(classNode.superName ?: "")
+				classNode.interfaces?.forEach { name -> it.update(name) }
+				it.update(0.toByte())
+			}
+		}
+
+		/**
+		 * [hierarchy] of classes known only by their hierarchy entries, as when streaming
+		 */
+		@JvmName("entryHierarchy")
+		fun hierarchy(entries: Collection<ClassTreeEntry>): ByteArray = hash {
+			for (entry in entries.sortedBy { it.getName() }) {
+				val superName = entry.getDirectSuper()
+				it.update(entry.getName())
+				it.update(superName ?: "")
+				entry.getSuperClasses().forEach { name -> if (name != superName) it.update(name) }
+				it.update(0.toByte())
+			}
+		}
+
+		/**
+		 * The class as written without any computation, or null if it cannot be written
+		 */
+		fun serialize(classNode: ClassNode): ByteArray? = try {
+			ClassWriter(0).also { classNode.accept(it) }.toByteArray()
+		} catch (t: Throwable) {
+			null
+		}
+
+		/**
+		 * Replaces the contents of [classNode] with [bytes], keeping its identity and original name. Returns false and
+		 * leaves [classNode] untouched if the bytes cannot be read
+		 */
+		fun load(classNode: ClassNode, bytes: ByteArray, verify: Boolean): Boolean {
+			val read = ClassNode()
+			try {
+				ClassReader(bytes).accept(read, 0)
+			} catch (t: Throwable) {
+				return false
+			}
+
+			classNode.verify = verify
+			classNode.replaceWith(read)
+			return true
+		}
+	}
+}
@@ -2,73 +2,80 @@ package dev.binclub.binscure.classpath
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.CObfuscator.random
+import dev.binclub.binscure.classpath.tree.ClassSummaryTreeEntry
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
-import dev.binclub.binscure.utils.DummyHashSet
+import dev.binclub.binscure.metrics.FlightRecorder
+import dev.binclub.binscure.metrics.StageMetrics
+import dev.binclub.binscure.utils.PrefixTrie
+import dev.binclub.binscure.utils.RandomStreams
 import dev.binclub.binscure.utils.isExcluded
 import dev.binclub.binscure.utils.verifyClass
 import dev.binclub.binscure.utils.versionAtLeast
 import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassTooLargeException
+import org.objectweb.asm.ClassVisitor
 import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.MethodVisitor
 import org.objectweb.asm.Opcodes
 import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodNode
 import java.io.File
-import java.io.FileOutputStream
-import java.lang.reflect.Field
 import java.net.URL
 import java.net.URLClassLoader
 import java.util.*
-import java.util.jar.JarFile
-import java.util.jar.JarOutputStream
-import java.util.zip.CRC32
-import java.util.zip.ZipEntry
-import java.util.zip.ZipOutputStream
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinWorkerThread
+import java.util.concurrent.RecursiveAction
+import kotlin.math.max
 
 
 /**
  * @author cookiedragon234 25/Jan/2020
  */
 object ClassPathIO {
-	const val HARD_EXCLUDED_CR_FLAGS = ClassReader.SKIP_CODE or ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES
-
 	fun loadInputJar(classSources: ClassSources, file: File) {
 		if (rootConfig.useJavaClassloader && rootConfig.sources.size <= 1) {
 			addFileToClassPath(file)
 		} else {
 			if (file.extension == "class") {
 				val bytes = file.readBytes()
-				val classNode = ClassNode()
-				try {
-					ClassReader(bytes)
-						.accept(classNode, 0)
+				// Only the name is read from the header of a hard excluded class
+				if (hardExclusions().matches(ClassReader(bytes).className)) {
+					classSources.passThrough[file.name] = bytes
+					return
+				}
+				val classNode = try {
+					readInputClass(classSources, bytes)
 				} catch (t: Throwable) {
 					println("\rError reading class file [${file.name}], skipping")
 					t.printStackTrace()
 					return
 				}
-				val hardExcluded = rootConfig.hardExclusions.any { classNode.name.startsWith(it) }
-
-				loadInputClassNode(classSources, file.name, bytes, classNode, hardExcluded)
+				loadInputClassNode(classSources, file.name, classNode)
 			} else if (file.extension == "jar" || file.extension == "zip") {
-				JarFile(file, false).use { jar ->
-					for (entry in jar.entries()) {
-						val bytes = jar.getInputStream(entry).readBytes()
-						if (!entry.isDirectory && entry.name.endsWith(".class") && !entry.name.endsWith("module-info.class")) {
-							val hardExcluded = rootConfig.hardExclusions.any { entry.name.startsWith(it) }
-							val classNode = ClassNode()
-
-							try {
-								ClassReader(bytes)
-									.accept(classNode, if (hardExcluded) HARD_EXCLUDED_CR_FLAGS else ClassReader.SKIP_FRAMES)
-							} catch (t: Throwable) {
-								println("\rError reading class file [${entry.name}], skipping")
-								t.printStackTrace()
-								continue
-							}
-
-							loadInputClassNode(classSources, entry.name, bytes, classNode, hardExcluded)
-						} else if (!entry.isDirectory) {
-							classSources.passThrough[entry.name] = bytes
+				val jar = MappedZip(file)
+				val entries = jar.entries.filter { !it.isDirectory }
+				// Resources and hard excluded classes are passed through without being read, decided from their names
+				val hardExclusions = hardExclusions()
+				val classes = entries.filter { isInputClass(it) && !hardExclusions.matches(it.name) }
+				val read = readEntries(jar, classes, CObfuscator.pool) { _, bytes ->
+					readInputClass(classSources, bytes)
+				}
+				
+				// Entries are added in the order of the jar, as they would be if read one by one
+				var i = 0
+				for (entry in entries) {
+					if (i < classes.size && classes[i] === entry) {
+						val result = read[i++]
+						val classNode = result.value
+						if (classNode == null) {
+							println("\rError reading class file [${entry.name}], skipping")
+							result.error?.printStackTrace()
+						} else {
+							loadInputClassNode(classSources, entry.name, classNode)
 						}
+					} else {
+						classSources.passThrough.putRaw(entry.name, jar, entry)
 					}
 				}
 			} else {
@@ -77,10 +84,161 @@ object ClassPathIO {
 		}
 	}
 
-	fun loadInputClassNode(classSources: ClassSources, name: String, bytes: ByteArray, classNode: ClassNode, hardExcluded: Boolean) {
+	/**
+	 * Reads an input class, keeping the frames of its methods aside in [ClassSources.originalFrames] and the reader in
+	 * [ClassSources.originalReaders] if [ClassSources.keepReaders]
+	 */
+	private fun readInputClass(classSources: ClassSources, bytes: ByteArray): ClassNode {
+		val classNode = ClassNode()
+		val reader = ClassReader(bytes)
+		reader.accept(classNode, 0)
+		if (OriginalFrames.strip(classNode, classSources.originalFrames) && classSources.keepReaders) {
+			classSources.originalReaders[classNode] = reader
+		}
+		return classNode
+	}
+	
+	/**
+	 * The result of reading one entry with [readEntries], [value] is null if reading it threw [error]
+	 */
+	class EntryRead<T>(val value: T?, val error: Throwable?)
+	
+	/**
+	 * Inflates every entry of [entries] and gives its bytes to [read] on [pool], returning the results in the order of
+	 * [entries]. The central directory is read up front, so entries can be inflated and parsed independently, which is
+	 * most of the time spent reading a jar
+	 */
+	fun <T> readEntries(
+		jar: MappedZip,
+		entries: List<MappedZip.Entry>,
+		pool: ForkJoinPool,
+		read: (MappedZip.Entry, ByteArray) -> T
+	): List<EntryRead<T>> {
+		val results = arrayOfNulls<EntryRead<T>>(entries.size)
+		val task = ReadTask(jar, entries, results, read, 0, entries.size, max(entries.size / (pool.parallelism * 4), 1))
+		if (pool.parallelism <= 1 || entries.size <= 1) {
+			task.compute()
+		} else if ((Thread.currentThread() as? ForkJoinWorkerThread)?.pool === pool) {
+			task.invoke()
+		} else {
+			pool.invoke(task)
+		}
+		@Suppress("UNCHECKED_CAST")
+		return results.asList() as List<EntryRead<T>>
+	}
+	
+	private class ReadTask<T>(
+		private val jar: MappedZip,
+		private val entries: List<MappedZip.Entry>,
+		private val results: Array<EntryRead<T>?>,
+		private val read: (MappedZip.Entry, ByteArray) -> T,
+		private val from: Int,
+		private val to: Int,
+		private val batchSize: Int
+	): RecursiveAction() {
+		public override fun compute() {
+			if (to - from <= batchSize) {
+				for (i in from until to) {
+					val entry = entries[i]
+					results[i] = try {
+						EntryRead(read(entry, jar.bytes(entry)), null)
+					} catch (t: Throwable) {
+						EntryRead(null, t)
+					}
+				}
+			} else {
+				val middle = (from + to) ushr 1
+				invokeAll(
+					ReadTask(jar, entries, results, read, from, middle, batchSize),
+					ReadTask(jar, entries, results, read, middle, to, batchSize)
+				)
+			}
+		}
+	}
+	
+	private fun isInputClass(entry: MappedZip.Entry) =
+		!entry.isDirectory && entry.name.endsWith(".class") && !entry.name.endsWith("module-info.class")
+	
+	/**
+	 * [dev.binclub.binscure.api.RootConfiguration.hardExclusions] as a trie, hard exclusions usually being whole
+	 * packages of dependencies that every entry of the jar is matched against
+	 */
+	private fun hardExclusions() = PrefixTrie(rootConfig.hardExclusions)
+	
+	/**
+	 * First pass of streaming an input jar: records the hierarchy of every class in [ClassSources.summaries] without
+	 * keeping the class itself. Returns the entries of the classes to load in batches with [loadInputClasses], every
+	 * other entry is passed through by [writePassThrough]
+	 */
+	fun summariseInputJar(classSources: ClassSources, jar: MappedZip): List<MappedZip.Entry> {
+		val hardExclusions = hardExclusions()
+		val entries = jar.entries.filter { isInputClass(it) && !hardExclusions.matches(it.name) }
+		val read = readEntries(jar, entries, CObfuscator.pool) { _, bytes ->
+			ClassSummaryTreeEntry.read(ClassReader(bytes))
+		}
+		val streamed = ArrayList<MappedZip.Entry>(entries.size)
+		for ((i, entry) in entries.withIndex()) {
+			val summary = read[i].value
+			if (summary == null) {
+				println("\rError reading class file [${entry.name}], skipping")
+				read[i].error?.printStackTrace()
+				continue
+			}
+			classSources.summaries[summary.getName()] = summary
+			streamed.add(entry)
+		}
+		return streamed
+	}
+	
+	/**
+	 * Writes every entry of [jar] that is not a streamed class, in the order [loadInputJar] would have kept them.
+	 * Each entry is given to [process] on its own before it is written
+	 */
+	fun writePassThrough(jar: MappedZip, out: OutputWriter, process: (MutableMap<String, ByteArray>) -> Unit) {
+		val hardExclusions = hardExclusions()
+		for ((i, entry) in jar.entries.withIndex()) {
+			out.progress("resources", i, jar.size)
+			if (!entry.isDirectory && (!isInputClass(entry) || hardExclusions.matches(entry.name))) {
+				val resource = PassThroughMap()
+				resource.putRaw(entry.name, jar, entry)
+				process(resource)
+				for (name in resource.keys) {
+					out.writePassThrough(resource, name)
+				}
+			}
+		}
+		out.endProgress()
+	}
+	
+	/**
+	 * Loads a batch of classes returned by [summariseInputJar] into [ClassSources.classes]
+	 */
+	fun loadInputClasses(classSources: ClassSources, jar: MappedZip, entries: List<MappedZip.Entry>): List<ClassNode> {
+		val read = readEntries(jar, entries, CObfuscator.pool) { _, bytes ->
+			readInputClass(classSources, bytes)
+		}
+		val loaded = ArrayList<ClassNode>(entries.size)
+		for ((i, entry) in entries.withIndex()) {
+			val classNode = read[i].value
+			if (classNode == null) {
+				println("\rError reading class file [${entry.name}], skipping")
+				read[i].error?.printStackTrace()
+				continue
+			}
+			loadInputClassNode(classSources, entry.name, classNode)
+			loaded.add(classNode)
+		}
+		return loaded
+	}
+	
+	/**
+	 * Adds [classNode], read from the entry [name], to [classSources]. Classes that are not excluded are upgraded to
+	 * Java 7 (or warned about) and have their members shuffled as configured
+	 */
+	fun loadInputClassNode(classSources: ClassSources, name: String, classNode: ClassNode) {
 		val excluded = rootConfig.tExclusions.isExcluded(classNode)
 
-		if (!classNode.versionAtLeast(Opcodes.V1_7) && !excluded && !hardExcluded) {
+		if (!classNode.versionAtLeast(Opcodes.V1_7) && !excluded) {
 			if (rootConfig.upgradeVersions) {
 				classNode.version = Opcodes.V1_7
 			} else {
@@ -88,47 +246,74 @@ object ClassPathIO {
 			}
 		}
 
-		if (!excluded && !hardExcluded) {
-			if (rootConfig.shuffleFields) {
-				classNode.fields?.shuffle(random)
-			}
-			if (rootConfig.shuffleMethods) {
-				classNode.methods?.shuffle(random)
-			}
-			if (rootConfig.shuffleClasses) {
-				classNode.innerClasses?.shuffle(random)
+		if (!excluded) {
+			RandomStreams.withStream("load", classNode.name) {
+				if (rootConfig.shuffleFields) {
+					classNode.fields?.shuffle(random)
+				}
+				if (rootConfig.shuffleMethods) {
+					classNode.methods?.shuffle(random)
+				}
+				if (rootConfig.shuffleClasses) {
+					classNode.innerClasses?.shuffle(random)
+				}
 			}
 		}
 
-		if (!hardExcluded) {
-			classSources.classes[classNode.name] = classNode
-		} else {
-			classSources.passThrough[name] = bytes
-		}
+		classSources.classes[classNode.name] = classNode
 		classNode.originalName = classNode.name
 	}
 
-	fun loadClassPath(classPath: MutableMap<String, ClassNode>, files: Iterable<File>) = loadClassPath(classPath, files.iterator())
+	fun loadClassPath(classPath: MutableMap<String, ClassNode>, files: Iterable<File>, pool: ForkJoinPool = ForkJoinPool.commonPool()) =
+		loadClassPath(classPath, files.iterator(), pool)
 
-	fun loadClassPath(classPath: MutableMap<String, ClassNode>, iterator: Iterator<File>) {
+	fun loadClassPath(classPath: MutableMap<String, ClassNode>, iterator: Iterator<File>, pool: ForkJoinPool = ForkJoinPool.commonPool()) {
+		forEachClassPathJar(iterator) { file ->
+			MappedZip(file).use { jar ->
+				val read = readEntries(jar, classPathEntries(jar), pool) { _, bytes ->
+					ClassNode().also { ClassReader(bytes).accept(it, 0) }
+				}
+				for (result in read) {
+					val classNode = result.value ?: throw result.error!!
+					classPath[classNode.name] = classNode
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The class files of a class path jar
+	 */
+	fun classPathEntries(jar: MappedZip): List<MappedZip.Entry> =
+		jar.entries.filter { !it.isDirectory && it.name.endsWith(".class") }
+
+	/**
+	 * Calls [action] with every class file in the jars of [iterator], searching directories for jars. Each jar is
+	 * closed once its entries are done, so [action] may not keep it
+	 */
+	fun forEachClassPathEntry(iterator: Iterator<File>, action: (File, MappedZip, MappedZip.Entry) -> Unit) {
+		forEachClassPathJar(iterator) { file ->
+			MappedZip(file).use { jar ->
+				for (entry in classPathEntries(jar)) {
+					action(file, jar, entry)
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calls [action] with every jar of [iterator], searching directories for jars
+	 */
+	fun forEachClassPathJar(iterator: Iterator<File>, action: (File) -> Unit) {
 		val files = Stack<File>()
 		iterator.forEachRemaining(files::add)
 
 		while (files.isNotEmpty()) {
 			val file = files.pop()
 			if (file.isDirectory) {
-				loadClassPath(classPath, file.listFiles()!!.iterator())
+				forEachClassPathJar(file.listFiles()!!.iterator(), action)
 			} else if (file.extension == "jar" || file.extension == "zip") {
-				JarFile(file).use {
-					for (entry in it.entries()) {
-						if (!entry.isDirectory && entry.name.endsWith(".class")) {
-							val classNode = ClassNode()
-							ClassReader(it.getInputStream(entry).readBytes())
-								.accept(classNode, 0)
-							classPath[classNode.name] = classNode
-						}
-					}
-				}
+				action(file)
 			} else {
 				println("Unrecognised library type ${file.extension}")
 			}
@@ -144,162 +329,217 @@ object ClassPathIO {
 		}.toByteArray()
 	}
 
-	private val GARBAGE_CLASS = ByteArray(31).also(random::nextBytes)
-
-	fun writeOutput(classSources: ClassSources, file: File) {
-		val fileOut = FileOutputStream(file).buffered()
-		JarOutputStream(fileOut).use {
-			namesField[it] = DummyHashSet<String>()
-			val crc = DummyCRC(0xDEADBEEF)
-			if (rootConfig.crasher.enabled && rootConfig.crasher.checksums) {
-				crcField[it] = crc
-				it.putNextEntry(ZipEntry("â\u3B25\u00d4\ud400®©¯\u00EB\u00A9\u00AE\u008D\u00AA\u002E"))
-			}
-
-			var lastPrint = 0L
-
-			fun shouldPrint(): Boolean {
-				val now = System.currentTimeMillis()
-				return if (now - lastPrint >= 200L) {
-					lastPrint = now
-					true
-				} else false
-			}
-
-			val lineChar = rootConfig.getLineChar()
-
-			val passThrough = classSources.passThrough
-			var size = passThrough.size
-			for ((i, entry) in passThrough.entries.withIndex()) {
-				if (shouldPrint() && rootConfig.printProgress) {
-					val percentStr = ((i.toFloat() / size) * 100).toInt().toString().padStart(3, ' ')
-					print("${lineChar}Writing resources ($percentStr% - $i/${size})".padEnd(100, ' '))
-				}
-				crc.overwrite = false
-				it.putNextEntry(ZipEntry(entry.key))
-				it.write(entry.value)
-				it.closeEntry()
-			}
-
-			if (rootConfig.printProgress) {
-				print(rootConfig.getLineChar())
-			}
-
-			val classes = classSources.classes
-			size = classes.size
-			for ((i, classNode) in classes.values.withIndex()) {
-				crc.overwrite = false
-				
-				val excluded = rootConfig.tExclusions.isExcluded(classNode)
-				if (shouldPrint() && rootConfig.printProgress) {
-					val percentStr = ((i.toFloat() / size) * 100).toInt().toString().padStart(3, ' ')
-					print("${lineChar}Writing classes ($percentStr% - $i/${size})".padEnd(100, ' '))
-				}
-				if (!excluded) {
-					crc.overwrite = true
-					if (rootConfig.shuffleFields) {
-						classNode.fields?.shuffle(random)
-					}
-					if (rootConfig.shuffleMethods) {
-						classNode.methods?.shuffle(random)
-					}
-					if (rootConfig.shuffleClasses) {
-						classNode.innerClasses?.shuffle(random)
-					}
-				}
-				
-				val name = "${classNode.name}.class"
-				val entry = ZipEntry(name)
-				
-				if (!excluded && rootConfig.crasher.enabled && rootConfig.crasher.checksums) {
-					crc.overwrite = true
-					
-					it.putNextEntry(ZipEntry(name + "\u0000"))
-					it.write(0xDEAD)
-					it.write(0xBEEF)
-					
-					it.putNextEntry(ZipEntry(name))
-					it.write(GARBAGE_CLASS)
-				}
-				
-				it.putNextEntry(entry)
-
-				val frames = rootConfig.writeStackMap && classNode.verify
-				val arr: ByteArray? = try {
-					if (frames) {
-						try {
-							writeClassNode(true, classSources, classNode)
-						} catch (e: Throwable) {							
-							System.err.println("${lineChar}Error while writing class ${classNode.niceName} with frames")
-							e.printStackTrace()
-							writeClassNode(false, classSources, classNode)
-						}
-					} else {
-						writeClassNode(false, classSources, classNode)
-					}
-				} catch (e: Throwable) {						
-					System.err.println("${lineChar}Error while writing class ${classNode.niceName} without frames")
+	fun writeOutput(classSources: ClassSources, file: File, metrics: StageMetrics? = null) {
+		val hierarchy = { ClassCache.hierarchy(classSources.classes.values) }
+		OutputWriter(classSources, file, hierarchy, metrics).use { out ->
+			out.writePassThrough(classSources.passThrough)
+			out.endProgress()
+			
+			out.writeClasses(classSources.classes.values)
+			out.endProgress()
+		}
+	}
+	
+	/**
+	 * The size of an output written by [writeOutput], a jar or a directory
+	 */
+	fun outputSize(file: File): Long =
+		if (file.isDirectory) file.walk().filter { it.isFile }.sumOf { it.length() } else file.length()
+	
+	/**
+	 * Writes a class with frames if [frames], falling back to writing it without them. Returns null if neither works
+	 */
+	internal fun writeClass(classSources: ClassSources, classNode: ClassNode, frames: Boolean, lineChar: Char): ByteArray? {
+		val event = FlightRecorder.beginWriteClass(classNode, frames)
+		var fallback = false
+		val arr: ByteArray? = try {
+			if (frames) {
+				try {
+					writeClassNode(true, classSources, classNode)
+				} catch (e: Throwable) {
+					System.err.println("${lineChar}Error while writing class ${classNode.niceName} with frames")
 					e.printStackTrace()
-					null
+					fallback = true
+					writeClassNode(false, classSources, classNode)
 				}
-				
-				if (arr != null) {
-					it.write(arr)
-					it.closeEntry()
-				}
-			}
-
-			if (rootConfig.printProgress) {
-				print(rootConfig.getLineChar())
+			} else {
+				writeClassNode(false, classSources, classNode)
 			}
+		} catch (e: Throwable) {
+			System.err.println("${lineChar}Error while writing class ${classNode.niceName} without frames")
+			e.printStackTrace()
+			null
 		}
+		FlightRecorder.endWriteClass(event, fallback, arr?.size ?: -1)
+		return arr
 	}
 	
-	fun writeClassNode(stackMap: Boolean, classSources: ClassSources, cn: ClassNode): ByteArray {
-		val flags = if (stackMap)
+	/**
+	 * Writes [cn], with frames if [stackMap]. Methods that are unchanged since they were read keep their original frames
+	 * (see [OriginalFrames]), frames are only computed for the others. Unchanged methods are copied from the input class
+	 * as they are rather than written again if [copy] and the constant pool of the input class can be kept (see
+	 * [ConstantPoolCheck])
+	 */
+	fun writeClassNode(stackMap: Boolean, classSources: ClassSources, cn: ClassNode, copy: Boolean = true): ByteArray {
+		val verbatim = ArrayList<MethodNode>()
+		val unchanged = if (stackMap) unchangedFrames(classSources, cn, verbatim) else emptyMap()
+		val computed = if (unchanged.isEmpty()) null else try {
+			computeFrames(classSources, cn, cn.methods.filter { it.instructions.size() > 0 && it !in unchanged })
+		} catch (t: Throwable) {
+			// Computed for the whole class instead
+			null
+		}
+		val flags = if (stackMap && computed == null)
 			ClassWriter.COMPUTE_FRAMES
 		else
 			ClassWriter.COMPUTE_MAXS
 		
-		val writer = CustomClassWriter(classSources, flags)
-		cn.accept(writer)
-		return writer.toByteArray()
-	}
-
-	val namesField: Field by lazy {
-		ZipOutputStream::class.java.getDeclaredField("names").also {
-			it.isAccessible = true
+		val reader = if (copy) classSources.originalReaders[cn] else null
+		val copied = if (reader == null) emptyMap() else copiedMethods(reader, cn, unchanged, verbatim, computed != null)
+		if (copied.isEmpty() && computed == null) {
+			val writer = CustomClassWriter(classSources, flags)
+			cn.accept(writer)
+			return writer.toByteArray()
 		}
-	}
-
-	val crcField: Field by lazy {
-		ZipOutputStream::class.java.getDeclaredField("crc").also {
-			it.isAccessible = true
+		
+		val writer = CustomClassWriter(classSources, flags, reader.takeIf { copied.isNotEmpty() })
+		// Methods are written below
+		cn.accept(object: ClassVisitor(Opcodes.ASM9, writer) {
+			override fun visitMethod(
+				access: Int,
+				name: String,
+				descriptor: String,
+				signature: String?,
+				exceptions: Array<out String>?
+			): MethodVisitor? = null
+			
+			override fun visitEnd() {}
+		})
+		
+		var next = 0
+		fun writeUntil(end: Int) {
+			while (next < end) {
+				val method = cn.methods[next++]
+				val frames = computed?.get(method)
+				if (frames != null) {
+					frames.accept(writer)
+				} else {
+					val visitor = writer.visitMethod(method.access, method.name, method.desc, method.signature, method.exceptions?.toTypedArray())
+					method.accept(computed?.let { unchanged[method]?.writer(visitor) } ?: visitor)
+				}
+			}
 		}
-	}
-
-	val timeField: Field by lazy {
-		ZipEntry::class.java.getDeclaredField("csize").also {
-			it.isAccessible = true
+		if (copied.isNotEmpty()) {
+			val position = IdentityHashMap<MethodNode, Int>()
+			for ((i, method) in cn.methods.withIndex()) {
+				position[method] = i
+			}
+			// Methods can only be copied as they are read, in the order of the input class. Methods in between are written
+			// first so the order of the methods stays the same, a method that has already been written is not copied
+			reader!!.accept(object: ClassVisitor(Opcodes.ASM9) {
+				private var index = 0
+				
+				override fun visitMethod(
+					access: Int,
+					name: String,
+					descriptor: String,
+					signature: String?,
+					exceptions: Array<out String>?
+				): MethodVisitor? {
+					val method = copied[index++] ?: return null
+					val at = position[method]!!
+					if (at < next)
+						return null
+					writeUntil(at)
+					next++
+					// ASM copies the method if it is given the writer of the method itself
+					return writer.visitMethod(method.access, method.name, method.desc, method.signature, method.exceptions?.toTypedArray())
+				}
+			}, 0)
+		}
+		writeUntil(cn.methods.size)
+		writer.visitEnd()
+		
+		return try {
+			writer.toByteArray()
+		} catch (e: ClassTooLargeException) {
+			// The constant pool of the input class and the new constants are too many together
+			if (copied.isEmpty()) throw e
+			writeClassNode(stackMap, classSources, cn, false)
 		}
 	}
-
-	val commentField: Field by lazy {
-		ZipOutputStream::class.java.getDeclaredField("comment").also {
-			it.isAccessible = true
+	
+	/**
+	 * The methods of [cn] to be copied from [reader] by their position in the input class, the [verbatim] methods if the
+	 * constant pool of [reader] can be kept. The frames of other [unchanged] methods are only written as they were if
+	 * [keptFrames]
+	 */
+	private fun copiedMethods(
+		reader: ClassReader,
+		cn: ClassNode,
+		unchanged: Map<MethodNode, OriginalFrames>,
+		verbatim: List<MethodNode>,
+		keptFrames: Boolean
+	): Map<Int, MethodNode> {
+		val copied = HashMap<Int, MethodNode>()
+		for (method in verbatim) {
+			copied[unchanged.getValue(method).index] = method
 		}
+		if (copied.isEmpty())
+			return copied
+		val written = if (keptFrames) unchanged.values else copied.values.map { unchanged.getValue(it) }
+		return if (ConstantPoolCheck.isStillReferenced(reader, cn, written)) copied else emptyMap()
 	}
-
-	private class DummyCRC(val crc: Long): CRC32() {
-		var overwrite = false
-
-		override fun getValue(): Long {
-			return if (overwrite) {
-				crc
-			} else {
-				super.getValue()
+	
+	/**
+	 * The original frames of the methods of [cn] the code of which is unchanged since they were read, adding those that
+	 * are entirely unchanged to [verbatim]
+	 */
+	private fun unchangedFrames(
+		classSources: ClassSources,
+		cn: ClassNode,
+		verbatim: MutableList<MethodNode>
+	): Map<MethodNode, OriginalFrames> {
+		if (classSources.originalFrames.isEmpty())
+			return emptyMap()
+		val unchanged = IdentityHashMap<MethodNode, OriginalFrames>()
+		for (method in cn.methods) {
+			val frames = classSources.originalFrames[method] ?: continue
+			val change = frames.compare(cn, method)
+			if (change != OriginalFrames.Change.CODE) {
+				unchanged[method] = frames
+			}
+			if (change == OriginalFrames.Change.NONE) {
+				verbatim.add(method)
 			}
 		}
+		return unchanged
+	}
+	
+	/**
+	 * Computes the frames of [methods] of [cn] by writing them in a class of their own, returning each method with its
+	 * frames
+	 */
+	private fun computeFrames(classSources: ClassSources, cn: ClassNode, methods: List<MethodNode>): Map<MethodNode, MethodNode> {
+		if (methods.isEmpty())
+			return emptyMap()
+		val partial = ClassNode()
+		partial.version = cn.version
+		partial.access = cn.access
+		partial.name = cn.name
+		partial.superName = cn.superName
+		partial.interfaces = cn.interfaces
+		partial.methods.addAll(methods)
+		val writer = CustomClassWriter(classSources, ClassWriter.COMPUTE_FRAMES)
+		partial.accept(writer)
+		
+		val read = ClassNode()
+		ClassReader(writer.toByteArray()).accept(read, 0)
+		val computed = IdentityHashMap<MethodNode, MethodNode>()
+		for ((i, method) in methods.withIndex()) {
+			computed[method] = read.methods[i]
+		}
+		return computed
 	}
 
 	private fun addFileToClassPath(file: File) =
@@ -1,26 +1,73 @@
 package dev.binclub.binscure.classpath
 
 import dev.binclub.binscure.classpath.tree.ClassNodeTreeEntry
-import dev.binclub.binscure.classpath.tree.ClassPathTreeEntry
 import dev.binclub.binscure.classpath.tree.ClassTreeEntry
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.metrics.FlightRecorder
 import org.objectweb.asm.ClassReader
+import org.objectweb.asm.Opcodes
 import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodNode
 import java.io.File
+import java.util.concurrent.ConcurrentHashMap
 import java.util.jar.JarFile
 
 /**
  * @author cookiedragon234 23/Jan/2020
  */
-class ClassSources (classPathInherit: Map<String, ClassNode>) {
+class ClassSources private constructor(
+	classPathInherit: Map<String, ClassNode>,
+	private val library: LibraryClassPath?
+) {
+	constructor(classPathInherit: Map<String, ClassNode>): this(classPathInherit, null)
+	
+	/**
+	 * Library classes are looked up in [library] as they are needed, [classPath] then only holds generated classes
+	 */
+	constructor(library: LibraryClassPath): this(emptyMap(), library)
+	
 	val classPath: MutableMap<String, ClassNode> = HashMap(classPathInherit)
 	val classes = mutableMapOf<String, ClassNode>()
-	val passThrough = mutableMapOf<String, ByteArray>()
-	private val treeEntries = hashMapOf<String, ClassTreeEntry>()
-	val hierachy = hashMapOf<String, ClassTree>()
+	val passThrough = PassThroughMap()
+	/**
+	 * Hierarchy entries of every input class when streaming, while [classes] only holds the batch being processed
+	 */
+	val summaries = hashMapOf<String, ClassTreeEntry>()
+	/**
+	 * The frames input methods were read with, see [OriginalFrames]
+	 */
+	val originalFrames = ConcurrentHashMap<MethodNode, OriginalFrames>()
+	/**
+	 * The reader of each input class with [originalFrames], so its unchanged methods can be copied from it as they are
+	 */
+	val originalReaders = ConcurrentHashMap<ClassNode, ClassReader>()
+	/**
+	 * Whether input classes keep their reader in [originalReaders]. A reader holds on to the whole class file, which is
+	 * of no use if no class can keep its constant pool or frames are not written
+	 */
+	var keepReaders = true
 	
+	/**
+	 * The number of input classes, including those of other batches when streaming
+	 */
+	val inputClassCount: Int
+		get() = if (summaries.isEmpty()) classes.size else summaries.size
+	private val platform = library?.platform ?: PlatformClassPath.of(rootConfig.targetRelease)
+	// Looked up and lazily added to by processors and class writers running on the pool
+	private val treeEntries = ConcurrentHashMap<String, ClassTreeEntry>()
+	/**
+	 * The entries of [treeEntries] by each of their super classes, so the children of a class are found without looking
+	 * at every entry. Kept up to date by [addTreeEntry]
+	 */
+	private val subclasses = ConcurrentHashMap<String, MutableSet<ClassTreeEntry>>()
+	val hierachy = ConcurrentHashMap<String, ClassTree>()
+	/**
+	 * The common super class of each pair of classes asked for by every class writer, see [getCommonSuperClass]
+	 */
+	private val commonSupers = ConcurrentHashMap<Pair<String, String>, String>()
 	
-	private val warnings = mutableSetOf<String>()
+	
+	private val warnings: MutableSet<String> = ConcurrentHashMap.newKeySet()
 	
 	fun warn(type: String) = warn(type, Unit)
 	
@@ -35,11 +82,73 @@ class ClassSources (classPathInherit: Map<String, ClassNode>) {
 		return out
 	}
 	
-	fun findClass(name: String) = classPath[name] ?: classes[name]
+	fun findClass(name: String) = classPath[name] ?: classes[name] ?: library?.findClass(name)
+	
+	/**
+	 * True if there is a class [name], without reading it if it is a library class
+	 */
+	fun containsClass(name: String): Boolean =
+		name in classPath || name in classes || name in summaries || library?.contains(name) == true
 	
 	fun getHierarchy(name: String): ClassTree? {
 		hierachy[name]?.let { return it }
 		
+		val event = FlightRecorder.beginHierarchy(name)
+		val tree = buildHierarchy(name)
+		FlightRecorder.endHierarchy(event, tree != null)
+		return tree
+	}
+	
+	/**
+	 * The nearest super class of both [type1] and [type2], as [org.objectweb.asm.ClassWriter.getCommonSuperClass] finds
+	 * it but from the hierarchy rather than from loaded classes. A class has java/lang/Object in common with an
+	 * interface it does not implement, and with a class that is not found.
+	 *
+	 * Frames are computed by asking for the same pairs over and over, so each pair is only worked out once
+	 */
+	fun getCommonSuperClass(type1: String, type2: String): String {
+		if (type1 == type2)
+			return type1
+		// The common super class of two classes is the same whichever is asked for first
+		val key = if (type1 < type2) type1 to type2 else type2 to type1
+		commonSupers[key]?.let { return it }
+		return findCommonSuperClass(type1, type2).also { commonSupers[key] = it }
+	}
+	
+	private fun findCommonSuperClass(type1: String, type2: String): String {
+		val first = getHierarchy(type1)?.thisClass ?: return "java/lang/Object"
+		val second = getHierarchy(type2)?.thisClass ?: return "java/lang/Object"
+		val secondSupers = superTypes(second)
+		if (type1 in secondSupers)
+			return type1
+		if (type2 in superTypes(first))
+			return type2
+		if (first.getAccess() and Opcodes.ACC_INTERFACE != 0 || second.getAccess() and Opcodes.ACC_INTERFACE != 0)
+			return "java/lang/Object"
+		var type = first.getDirectSuper()
+		while (type != null && type !in secondSupers) {
+			type = getHierarchy(type)?.thisClass?.getDirectSuper()
+		}
+		return type ?: "java/lang/Object"
+	}
+	
+	/**
+	 * Every class [entry] extends or implements. These are looked up by name, as the [ClassTree.parents] of a class only
+	 * hold the super classes that were known when its tree was built
+	 */
+	private fun superTypes(entry: ClassTreeEntry): Set<String> {
+		val out = HashSet<String>()
+		val toProcess = ArrayList(entry.getSuperClasses())
+		while (toProcess.isNotEmpty()) {
+			val name = toProcess.removeLast()
+			if (out.add(name)) {
+				getHierarchy(name)?.thisClass?.getSuperClasses()?.let(toProcess::addAll)
+			}
+		}
+		return out
+	}
+	
+	private fun buildHierarchy(name: String): ClassTree? {
 		treeEntries[name]?.let { tree ->
 			constructTreeSuperClasses(tree)
 			return constructTreeHiearchy(name, tree)
@@ -47,44 +156,53 @@ class ClassSources (classPathInherit: Map<String, ClassNode>) {
 		
 		findClass(name)?.let {
 			val tree = ClassNodeTreeEntry(it)
-			treeEntries[name] = tree
+			addTreeEntry(name, tree)
 			constructTreeSuperClasses(tree)
 			return constructTreeHiearchy(name, tree)
 		}
 		
-		return try {
-			val tree = ClassPathTreeEntry(Class.forName(name.replace('/', '.')))
-			treeEntries[name] = tree
+		platform.find(name)?.let { tree ->
+			addTreeEntry(name, tree)
 			constructTreeSuperClasses(tree)
-			constructTreeHiearchy(name, tree)
-		} catch (ignored: ClassNotFoundException){
-			warn(name, null)
+			return constructTreeHiearchy(name, tree)
 		}
+		
+		return warn(name, null)
 	}
 	
 	fun constructTreeSuperClasses(treeEntry: ClassTreeEntry) {
 		for (aSuper in treeEntry.getSuperClasses()) {
-			if (findClass(aSuper) == null) {
-				try {
-					val clazz = Class.forName(aSuper.replace('/', '.'))
-					treeEntries[aSuper] = ClassPathTreeEntry(clazz)
-				} catch (ignored: Throwable){}
+			if (!containsClass(aSuper)) {
+				platform.find(aSuper)?.let { addTreeEntry(aSuper, it) }
 			}
 		}
 	}
 	
 	fun reconstructHierarchy() {
 		treeEntries.clear()
+		subclasses.clear()
 		hierachy.clear()
-		for (classNode in classPath.values) {
-			val entry = ClassNodeTreeEntry(classNode)
-			treeEntries[classNode.name] = entry
+		commonSupers.clear()
+		if (library != null) {
+			for ((name, entry) in library.treeEntries) {
+				addTreeEntry(name, entry)
+			}
+		} else {
+			for (classNode in classPath.values) {
+				val entry = ClassNodeTreeEntry(classNode)
+				addTreeEntry(classNode.name, entry)
+				constructTreeSuperClasses(entry)
+			}
+		}
+		
+		for (entry in summaries.values) {
+			addTreeEntry(entry.getName(), entry)
 			constructTreeSuperClasses(entry)
 		}
 		
 		for (classNode in classes.values) {
 			val entry = ClassNodeTreeEntry(classNode)
-			treeEntries[classNode.name] = entry
+			addTreeEntry(classNode.name, entry)
 			constructTreeSuperClasses(entry)
 		}
 		
@@ -102,11 +220,23 @@ class ClassSources (classPathInherit: Map<String, ClassNode>) {
 				tree.parents.add(superTree)
 			}
 		}
-		for (entry2 in treeEntries.values) {
-			if (entry2.getSuperClasses().contains(name)) {
-				tree.children.add(entry2)
+		subclasses[name]?.let(tree.children::addAll)
+		return tree
+	}
+	
+	/**
+	 * Adds [entry] to [treeEntries] as [name] and indexes it by its super classes in [subclasses], in place of the entry
+	 * it replaces
+	 */
+	private fun addTreeEntry(name: String, entry: ClassTreeEntry) {
+		treeEntries.compute(name) { _, previous ->
+			if (previous !== entry) {
+				previous?.getSuperClasses()?.forEach { subclasses[it]?.remove(previous) }
+				for (aSuper in entry.getSuperClasses()) {
+					subclasses.computeIfAbsent(aSuper) { ConcurrentHashMap.newKeySet() }.add(entry)
+				}
 			}
+			entry
 		}
-		return tree
 	}
 }
@@ -0,0 +1,274 @@
+package dev.binclub.binscure.classpath
+
+import org.objectweb.asm.*
+import org.objectweb.asm.tree.*
+import java.lang.reflect.Field
+
+/**
+ * Whether the constant pool of an input class may be copied into the class written from it, which ASM does when
+ * methods are copied from the input class as they are (see [ClassPathIO.writeClassNode]). Every constant of the input
+ * class is then kept whether it is still used or not, so it is only copied if every name, string and number in it is
+ * still used by the class being written. Otherwise the names, strings and numbers the obfuscator took out of the class
+ * would be left in it
+ *
+ * @author cook 18/Oct/2026
+ */
+internal object ConstantPoolCheck {
+	private const val UTF8 = 1
+	private const val INTEGER = 3
+	private const val FLOAT = 4
+	private const val LONG = 5
+	private const val DOUBLE = 6
+
+	/** Attribute names, which are in the constant pool of any class with such an attribute */
+	private val ATTRIBUTES = hashSetOf(
+		"ConstantValue", "Code", "StackMapTable", "Exceptions", "InnerClasses", "EnclosingMethod", "Synthetic",
+		"Signature", "SourceFile", "SourceDebugExtension", "LineNumberTable", "LocalVariableTable",
+		"LocalVariableTypeTable", "Deprecated", "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations",
+		"RuntimeVisibleParameterAnnotations", "RuntimeInvisibleParameterAnnotations", "RuntimeVisibleTypeAnnotations",
+		"RuntimeInvisibleTypeAnnotations", "AnnotationDefault", "BootstrapMethods", "MethodParameters", "Module",
+		"ModulePackages", "ModuleMainClass", "NestHost", "NestMembers", "Record", "PermittedSubclasses"
+	)
+
+	/**
+	 * The strings a reader has decoded by their index, which are most of them once the class has been read
+	 */
+	private val utf8Values: Field by lazy {
+		ClassReader::class.java.getDeclaredField("constantUtf8Values").also {
+			it.isAccessible = true
+		}
+	}
+
+	/**
+	 * True if every constant of [reader] is used by [classNode], whose methods are written with the frames of [frames]
+	 */
+	fun isStillReferenced(reader: ClassReader, classNode: ClassNode, frames: Iterable<OriginalFrames>): Boolean {
+		// Not worth checking for the few module-info classes
+		if (classNode.module != null)
+			return false
+		val collector = Collector(reader.itemCount)
+		collector.addClass(classNode)
+		val referenced = collector.referenced
+		for (frame in frames) {
+			frame.addTypes(referenced)
+		}
+
+		@Suppress("UNCHECKED_CAST")
+		val decoded = utf8Values.get(reader) as Array<String?>
+		val buffer = CharArray(reader.maxStringLength)
+		for (i in 1 until reader.itemCount) {
+			val offset = reader.getItem(i)
+			// The second index of a long or double
+			if (offset == 0)
+				continue
+			val used = when (reader.b[offset - 1].toInt()) {
+				UTF8 -> (decoded[i] ?: utf8(reader, offset, buffer)).let { it in referenced || it in ATTRIBUTES }
+				INTEGER, FLOAT, LONG, DOUBLE -> reader.readConst(i, buffer) in referenced
+				// Every other constant is made of these
+				else -> true
+			}
+			if (!used)
+				return false
+		}
+		return true
+	}
+
+	/**
+	 * Decodes the modified UTF-8 constant at [offset]
+	 */
+	private fun utf8(reader: ClassReader, offset: Int, buffer: CharArray): String {
+		val b = reader.b
+		var current = offset + 2
+		val end = current + reader.readUnsignedShort(offset)
+		var length = 0
+		while (current < end) {
+			val c = b[current++].toInt()
+			buffer[length++] = when {
+				c and 0x80 == 0 -> c and 0x7F
+				c and 0xE0 == 0xC0 -> ((c and 0x1F) shl 6) or (b[current++].toInt() and 0x3F)
+				else -> ((c and 0xF) shl 12) or ((b[current++].toInt() and 0x3F) shl 6) or (b[current++].toInt() and 0x3F)
+			}.toChar()
+		}
+		return String(buffer, 0, length)
+	}
+
+	/**
+	 * Collects every name, string and number a class would put in its constant pool. The tree is walked directly rather
+	 * than visited, as this is done for each class with copied methods
+	 */
+	private class Collector(constants: Int) {
+		val referenced = HashSet<Any>(constants * 2)
+
+		private fun add(value: String?) {
+			if (value != null) referenced.add(value)
+		}
+
+		private fun addAll(values: List<String>?) {
+			if (values != null) referenced.addAll(values)
+		}
+
+		private fun addConstant(value: Any?) {
+			when (value) {
+				is String -> referenced.add(value)
+				is Type -> {
+					referenced.add(value.descriptor)
+					referenced.add(value.internalName)
+				}
+				is Handle -> {
+					referenced.add(value.owner)
+					referenced.add(value.name)
+					referenced.add(value.desc)
+				}
+				is ConstantDynamic -> {
+					referenced.add(value.name)
+					referenced.add(value.descriptor)
+					addConstant(value.bootstrapMethod)
+					for (i in 0 until value.bootstrapMethodArgumentCount) {
+						addConstant(value.getBootstrapMethodArgument(i))
+					}
+				}
+				// Stored as integers
+				is Byte -> referenced.add(value.toInt())
+				is Short -> referenced.add(value.toInt())
+				is Char -> referenced.add(value.code)
+				is Boolean -> referenced.add(if (value) 1 else 0)
+				is Int, is Long, is Float, is Double -> referenced.add(value)
+				// Annotation values, enums are the descriptor and name of the constant
+				is Array<*> -> value.forEach(::addConstant)
+				is List<*> -> value.forEach(::addConstant)
+				is AnnotationNode -> addAnnotation(value)
+				is ByteArray -> value.forEach(::addConstant)
+				is ShortArray -> value.forEach(::addConstant)
+				is CharArray -> value.forEach(::addConstant)
+				is BooleanArray -> value.forEach(::addConstant)
+				is IntArray -> value.forEach(::addConstant)
+				is LongArray -> value.forEach(::addConstant)
+				is FloatArray -> value.forEach(::addConstant)
+				is DoubleArray -> value.forEach(::addConstant)
+			}
+		}
+
+		private fun addAnnotation(annotation: AnnotationNode) {
+			referenced.add(annotation.desc)
+			// Names and values
+			annotation.values?.forEach(::addConstant)
+		}
+
+		private fun addAnnotations(annotations: List<AnnotationNode>?) {
+			annotations?.forEach(::addAnnotation)
+		}
+
+		private fun addAttributes(attributes: List<Attribute>?) {
+			attributes?.forEach { referenced.add(it.type) }
+		}
+
+		fun addClass(classNode: ClassNode) {
+			add(classNode.name)
+			add(classNode.signature)
+			add(classNode.superName)
+			addAll(classNode.interfaces)
+			add(classNode.sourceFile)
+			add(classNode.nestHostClass)
+			add(classNode.outerClass)
+			add(classNode.outerMethod)
+			add(classNode.outerMethodDesc)
+			addAll(classNode.nestMembers)
+			addAll(classNode.permittedSubclasses)
+			classNode.innerClasses?.forEach {
+				add(it.name)
+				add(it.outerName)
+				add(it.innerName)
+			}
+			addAnnotations(classNode.visibleAnnotations)
+			addAnnotations(classNode.invisibleAnnotations)
+			addAnnotations(classNode.visibleTypeAnnotations)
+			addAnnotations(classNode.invisibleTypeAnnotations)
+			addAttributes(classNode.attrs)
+			classNode.fields?.forEach {
+				add(it.name)
+				add(it.desc)
+				add(it.signature)
+				addConstant(it.value)
+				addAnnotations(it.visibleAnnotations)
+				addAnnotations(it.invisibleAnnotations)
+				addAnnotations(it.visibleTypeAnnotations)
+				addAnnotations(it.invisibleTypeAnnotations)
+				addAttributes(it.attrs)
+			}
+			classNode.recordComponents?.forEach {
+				add(it.name)
+				add(it.descriptor)
+				add(it.signature)
+				addAnnotations(it.visibleAnnotations)
+				addAnnotations(it.invisibleAnnotations)
+				addAnnotations(it.visibleTypeAnnotations)
+				addAnnotations(it.invisibleTypeAnnotations)
+				addAttributes(it.attrs)
+			}
+			classNode.methods?.forEach(::addMethod)
+		}
+
+		private fun addMethod(method: MethodNode) {
+			add(method.name)
+			add(method.desc)
+			add(method.signature)
+			addAll(method.exceptions)
+			method.parameters?.forEach { add(it.name) }
+			addAnnotations(method.visibleAnnotations)
+			addAnnotations(method.invisibleAnnotations)
+			addAnnotations(method.visibleTypeAnnotations)
+			addAnnotations(method.invisibleTypeAnnotations)
+			addAnnotations(method.visibleLocalVariableAnnotations)
+			addAnnotations(method.invisibleLocalVariableAnnotations)
+			method.visibleParameterAnnotations?.forEach(::addAnnotations)
+			method.invisibleParameterAnnotations?.forEach(::addAnnotations)
+			addConstant(method.annotationDefault)
+			addAttributes(method.attrs)
+			var insn = method.instructions.first
+			while (insn != null) {
+				when (insn.type) {
+					AbstractInsnNode.TYPE_INSN -> referenced.add((insn as TypeInsnNode).desc)
+					AbstractInsnNode.FIELD_INSN -> {
+						insn as FieldInsnNode
+						referenced.add(insn.owner)
+						referenced.add(insn.name)
+						referenced.add(insn.desc)
+					}
+					AbstractInsnNode.METHOD_INSN -> {
+						insn as MethodInsnNode
+						referenced.add(insn.owner)
+						referenced.add(insn.name)
+						referenced.add(insn.desc)
+					}
+					AbstractInsnNode.INVOKE_DYNAMIC_INSN -> {
+						insn as InvokeDynamicInsnNode
+						referenced.add(insn.name)
+						referenced.add(insn.desc)
+						addConstant(insn.bsm)
+						insn.bsmArgs?.forEach(::addConstant)
+					}
+					AbstractInsnNode.LDC_INSN -> addConstant((insn as LdcInsnNode).cst)
+					AbstractInsnNode.MULTIANEWARRAY_INSN -> referenced.add((insn as MultiANewArrayInsnNode).desc)
+					AbstractInsnNode.FRAME -> {
+						insn as FrameNode
+						insn.local?.forEach { if (it is String) referenced.add(it) }
+						insn.stack?.forEach { if (it is String) referenced.add(it) }
+					}
+				}
+				addAnnotations(insn.visibleTypeAnnotations)
+				addAnnotations(insn.invisibleTypeAnnotations)
+				insn = insn.next
+			}
+			method.tryCatchBlocks?.forEach {
+				add(it.type)
+				addAnnotations(it.visibleTypeAnnotations)
+				addAnnotations(it.invisibleTypeAnnotations)
+			}
+			method.localVariables?.forEach {
+				add(it.name)
+				add(it.desc)
+				add(it.signature)
+			}
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package dev.binclub.binscure.classpath
+
+import java.io.File
+import java.io.IOException
+
+/**
+ * Writes the output entries as files of [directory], replacing whatever the directory held before. Only an empty
+ * directory, or one holding the [MARKER] written by a previous run, is replaced, so a mistyped output never deletes
+ * anything else.
+ *
+ * Files are written as soon as they are prepared, so they are written concurrently across the pool and [write] has
+ * nothing left to do. Files are never compressed
+ *
+ * @author cook 18/Oct/2026
+ */
+class DirectoryWriter(private val directory: File): OutputContainer {
+	private object Written: OutputContainer.Prepared
+
+	private val root: String
+
+	init {
+		if (directory.exists()) {
+			if (!directory.isDirectory)
+				throw IOException("The output $directory is not a directory")
+			if (!directory.list().isNullOrEmpty() && !File(directory, MARKER).isFile)
+				throw IOException("The output directory $directory is not empty and was not written by binscure")
+			if (!directory.deleteRecursively())
+				throw IOException("Could not delete the previous output $directory")
+		}
+		if (!directory.mkdirs())
+			throw IOException("Could not create the output directory $directory")
+		File(directory, MARKER).createNewFile()
+		root = directory.canonicalPath + File.separator
+	}
+
+	override val isArchive: Boolean
+		get() = false
+
+	override fun prepare(name: String, bytes: ByteArray, compress: Boolean): OutputContainer.Prepared {
+		val file = file(name)
+		if (name.endsWith('/')) {
+			file.mkdirs()
+		} else {
+			file.parentFile.mkdirs()
+			file.writeBytes(bytes)
+		}
+		return Written
+	}
+
+	override fun prepareCopy(name: String, from: MappedZip, entry: MappedZip.Entry): OutputContainer.Prepared =
+		prepare(name, from.bytes(entry))
+
+	override fun write(name: String, prepared: OutputContainer.Prepared, crc: Long?) {}
+
+	override fun close() {}
+
+	private fun file(name: String): File {
+		val file = File(directory, name)
+		// Entries named like ../x would otherwise be written outside of the output
+		val path = file.canonicalPath
+		if (!path.startsWith(root) && path + File.separator != root)
+			throw IOException("Entry $name is outside of the output directory $directory")
+		return file
+	}
+
+	companion object {
+		/** Marks a directory as output of a previous run, which may be replaced */
+		const val MARKER = ".binscure-output"
+	}
+}
@@ -0,0 +1,120 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.classpath.tree.ClassSummaryTreeEntry
+import dev.binclub.binscure.classpath.tree.ClassTreeEntry
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.tree.ClassNode
+import java.io.Closeable
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * The library classes and their hierarchy entries. Neither is modified by obfuscation (every [ClassSources] works on
+ * its own copy), so a loaded class path is shared by every source and, in daemon mode, by every job using the same
+ * libraries.
+ *
+ * Libraries are only read for their hierarchy, the header and member declarations of each class (see
+ * [ClassSummaryTreeEntry]). A full [ClassNode] is read from the jar the first time one is asked for with [findClass].
+ * Given an [indexDirectory], the hierarchy of each jar is kept in a [LibraryIndex] and only read from the jar again
+ * when the jar changes. Jars are read across [pool]. Platform classes come from [platform]. The jars stay mapped
+ * until the class path is closed
+ *
+ * @author cook 18/Oct/2026
+ */
+class LibraryClassPath(
+	val files: List<File>,
+	indexDirectory: File? = null,
+	pool: ForkJoinPool = ForkJoinPool.commonPool(),
+	val platform: PlatformClassPath = PlatformClassPath.of(null)
+): Closeable {
+	private class Location(val jar: File, val entry: String)
+
+	private val stamps = stamps(files)
+	private val locations = HashMap<String, Location>()
+	private val inflated = ConcurrentHashMap<String, ClassNode>()
+	/** Jars stay mapped for classes that are inflated later */
+	private val jars = ConcurrentHashMap<File, MappedZip>()
+	val treeEntries: Map<String, ClassTreeEntry>
+
+	init {
+		val summaries = HashMap<String, ClassTreeEntry>()
+		ClassPathIO.forEachClassPathJar(files.iterator()) { file ->
+			val indexFile = indexDirectory?.let { LibraryIndex.indexFile(it, file) }
+			val index = indexFile?.let(LibraryIndex::open)
+			if (index != null) {
+				for (i in 0 until index.size) {
+					val summary = index.entry(i)
+					summaries[summary.getName()] = summary
+					locations[summary.getName()] = Location(file, index.entryName(i))
+				}
+			} else {
+				val read = ArrayList<Pair<String, ClassTreeEntry>>()
+				val jar = MappedZip(file).also { jars[file] = it }
+				val entries = ClassPathIO.classPathEntries(jar)
+				val results = ClassPathIO.readEntries(jar, entries, pool) { _, bytes ->
+					ClassSummaryTreeEntry.read(ClassReader(bytes))
+				}
+				for ((i, entry) in entries.withIndex()) {
+					val summary = results[i].value ?: throw results[i].error!!
+					summaries[summary.getName()] = summary
+					locations[summary.getName()] = Location(file, entry.name)
+					read.add(entry.name to summary)
+				}
+				indexFile?.let { LibraryIndex.write(it, read) }
+			}
+		}
+
+		val treeEntries = HashMap<String, ClassTreeEntry>(summaries)
+		for (summary in summaries.values) {
+			for (aSuper in summary.getSuperClasses()) {
+				if (aSuper !in treeEntries) {
+					platform.find(aSuper)?.let { treeEntries[aSuper] = it }
+				}
+			}
+		}
+		this.treeEntries = treeEntries
+	}
+
+	operator fun contains(name: String): Boolean = name in locations
+
+	/**
+	 * The fully read library class [name], or null if there is no such class
+	 */
+	fun findClass(name: String): ClassNode? {
+		inflated[name]?.let { return it }
+		val location = locations[name] ?: return null
+		return inflated.computeIfAbsent(name) {
+			val jar = jars.computeIfAbsent(location.jar, ::MappedZip)
+			ClassNode().also { classNode ->
+				ClassReader(jar.bytes(location.entry)!!)
+					.accept(classNode, 0)
+			}
+		}
+	}
+
+	/**
+	 * True if [files] are the files this class path was loaded from, none of them have changed since, and it was loaded
+	 * for the platform of [release]
+	 */
+	fun isCurrent(files: List<File>, release: Int?): Boolean =
+		files == this.files && platform == PlatformClassPath.of(release) && stamps(files) == stamps
+
+	/**
+	 * Unmaps the library jars. The platform class path is shared and stays open, this class path must not be used
+	 * afterwards
+	 */
+	override fun close() {
+		for (jar in jars.values) {
+			jar.close()
+		}
+		jars.clear()
+		inflated.clear()
+	}
+
+	companion object {
+		private fun stamps(files: List<File>): List<String> = files.flatMap { file ->
+			file.walk().filter { it.isFile }.map { "${it.absolutePath}:${it.length()}:${it.lastModified()}" }.toList()
+		}
+	}
+}
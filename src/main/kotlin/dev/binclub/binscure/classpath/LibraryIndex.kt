@@ -0,0 +1,191 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.classpath.tree.ClassTreeEntry
+import dev.binclub.binscure.classpath.tree.FieldInfo
+import dev.binclub.binscure.classpath.tree.MethodInfo
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.nio.Buffer
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.security.MessageDigest
+
+/**
+ * A binary index of the classes of a library jar: the hierarchy, access flags and member signatures of every class
+ * (everything behind its [ClassTreeEntry]) and the jar entry it was read from.
+ *
+ * Indexes are memory mapped. Opening one only decodes the class names, the rest of an entry is read from the mapping
+ * the first time it is used, so library classes that are never looked at cost neither time nor heap.
+ *
+ * An index is named after the jar's size, modification time and a hash of its central directory (the name, size and
+ * crc of every entry), so a jar that changed simply gets a new index.
+ *
+ * @author cook 18/Oct/2026
+ */
+class LibraryIndex private constructor(private val buffer: ByteBuffer) {
+	val size: Int = buffer.getInt(8)
+	private val stringCount = buffer.getInt(12)
+	private val strings = arrayOfNulls<String>(stringCount)
+
+	private fun classOffset(i: Int) = buffer.getInt(HEADER_SIZE + i * 4)
+
+	private fun string(i: Int): String {
+		strings[i]?.let { return it }
+		val offset = buffer.getInt(HEADER_SIZE + size * 4 + i * 4)
+		val bytes = ByteArray(buffer.getInt(offset))
+		val view = buffer.duplicate()
+		(view as Buffer).position(offset + 4)
+		view.get(bytes)
+		return String(bytes, Charsets.UTF_8).also { strings[i] = it }
+	}
+
+	/** The internal name of class [i] */
+	fun name(i: Int): String = string(buffer.getInt(classOffset(i)))
+
+	/** The jar entry class [i] was read from */
+	fun entryName(i: Int): String = string(buffer.getInt(classOffset(i) + 4))
+
+	fun entry(i: Int): ClassTreeEntry = IndexedTreeEntry(classOffset(i), name(i))
+
+	private inner class IndexedTreeEntry(private val offset: Int, private val name: String): ClassTreeEntry() {
+		private val superName: String? by lazy {
+			buffer.getInt(offset + 12).let { if (it < 0) null else string(it) }
+		}
+		private val supers: Set<String> by lazy {
+			val set = LinkedHashSet<String>()
+			superName?.let(set::add)
+			val count = buffer.getInt(offset + 16)
+			for (j in 0 until count) {
+				set.add(string(buffer.getInt(offset + 20 + j * 4)))
+			}
+			set
+		}
+		private val methodsOffset: Int
+			get() = offset + 20 + buffer.getInt(offset + 16) * 4
+		private val methods0: Set<MethodInfo> by lazy {
+			members(methodsOffset) { memberName, desc -> MethodInfo(name, memberName, desc) }
+		}
+		private val fields0: Set<FieldInfo> by lazy {
+			val methodsOffset = methodsOffset
+			members(methodsOffset + 4 + buffer.getInt(methodsOffset) * 8) { memberName, desc -> FieldInfo(name, memberName, desc) }
+		}
+
+		private inline fun <T> members(at: Int, member: (String, String) -> T): Set<T> {
+			val count = buffer.getInt(at)
+			val set = HashSet<T>(count * 2)
+			for (j in 0 until count) {
+				set.add(member(string(buffer.getInt(at + 4 + j * 8)), string(buffer.getInt(at + 8 + j * 8))))
+			}
+			return set
+		}
+
+		override fun getName(): String = name
+		override fun getDirectSuper(): String? = superName
+		override fun getSuperClasses(): Set<String> = supers
+		override fun getAccess(): Int = buffer.getInt(offset + 8)
+		override fun getMethods(): Set<MethodInfo> = methods0
+		override fun getFields(): Set<FieldInfo> = fields0
+	}
+
+	companion object {
+		private const val MAGIC = 0x42534c49 // BSLI
+		private const val VERSION = 1
+		private const val HEADER_SIZE = 16
+
+		/**
+		 * The index file of [jar] in [directory]
+		 */
+		fun indexFile(directory: File, jar: File): File {
+			val digest = MessageDigest.getInstance("SHA-256")
+			digest.update("${jar.length()}:${jar.lastModified()}".toByteArray())
+			MappedZip(jar).use {
+				for (entry in it.entries) {
+					digest.update("${entry.name}:${entry.size}:${entry.crc}\n".toByteArray())
+				}
+			}
+			val hex = digest.digest().joinToString("") { "%02x".format(it) }
+			return File(directory, "${jar.nameWithoutExtension}-${hex.substring(0, 32)}.idx")
+		}
+
+		/**
+		 * Maps the index [file], or returns null if it has not been written yet
+		 */
+		fun open(file: File): LibraryIndex? {
+			if (!file.isFile)
+				return null
+			return try {
+				val buffer = FileChannel.open(file.toPath(), StandardOpenOption.READ).use {
+					it.map(FileChannel.MapMode.READ_ONLY, 0, it.size())
+				}
+				if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) null else LibraryIndex(buffer)
+			} catch (t: Throwable) {
+				null
+			}
+		}
+
+		/**
+		 * Writes the index [file], [classes] being the entry name and hierarchy of each class of the jar
+		 */
+		fun write(file: File, classes: List<Pair<String, ClassTreeEntry>>) {
+			val strings = LinkedHashMap<String, Int>()
+			fun string(s: String) = strings.getOrPut(s) { strings.size }
+
+			val records = ByteArrayOutputStream()
+			val recordOffsets = IntArray(classes.size)
+			DataOutputStream(records).use { out ->
+				for ((i, pair) in classes.withIndex()) {
+					val (entryName, entry) = pair
+					recordOffsets[i] = out.size()
+					val superName = entry.getDirectSuper()
+					val interfaces = entry.getSuperClasses().filter { it != superName }
+					out.writeInt(string(entry.getName()))
+					out.writeInt(string(entryName))
+					out.writeInt(entry.getAccess())
+					out.writeInt(superName?.let(::string) ?: -1)
+					out.writeInt(interfaces.size)
+					interfaces.forEach { out.writeInt(string(it)) }
+					out.writeInt(entry.getMethods().size)
+					entry.getMethods().forEach { out.writeInt(string(it.name)); out.writeInt(string(it.desc)) }
+					out.writeInt(entry.getFields().size)
+					entry.getFields().forEach { out.writeInt(string(it.name)); out.writeInt(string(it.description)) }
+				}
+			}
+
+			val recordsStart = HEADER_SIZE + classes.size * 4 + strings.size * 4
+			val stringsStart = recordsStart + records.size()
+			val bytes = ByteArrayOutputStream(stringsStart + strings.size * 16)
+			DataOutputStream(bytes).use { out ->
+				out.writeInt(MAGIC)
+				out.writeInt(VERSION)
+				out.writeInt(classes.size)
+				out.writeInt(strings.size)
+				recordOffsets.forEach { out.writeInt(recordsStart + it) }
+				val encoded = strings.keys.map { it.toByteArray(Charsets.UTF_8) }
+				var stringOffset = stringsStart
+				for (string in encoded) {
+					out.writeInt(stringOffset)
+					stringOffset += 4 + string.size
+				}
+				records.writeTo(out)
+				for (string in encoded) {
+					out.writeInt(string.size)
+					out.write(string)
+				}
+			}
+
+			try {
+				val directory = file.absoluteFile.parentFile
+				directory.mkdirs()
+				val temp = File.createTempFile("index", ".tmp", directory)
+				temp.writeBytes(bytes.toByteArray())
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+			} catch (t: Throwable) {
+				println("\rWarning: Could not write the library index $file ($t)")
+			}
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package dev.binclub.binscure.classpath
+
+import java.io.Closeable
+import java.io.File
+import java.nio.Buffer
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.util.zip.Inflater
+import java.util.zip.ZipException
+
+/**
+ * A read only zip (or jar) archive, memory mapped and read straight from the mapping.
+ *
+ * The central directory is parsed when the archive is opened. [bytes] then copies a stored entry out of the mapping,
+ * or inflates a deflated one from the mapping into an array of exactly its size, instead of going through the
+ * buffers and streams of [java.util.zip.ZipFile]. Reading is thread safe, entries can be read concurrently. The
+ * mapping is released once the archive is no longer referenced, or when it is closed.
+ *
+ * Archives are limited to 2GB, the size of a single mapping
+ *
+ * @author cook 18/Oct/2026
+ */
+class MappedZip(val file: File): Closeable {
+	class Entry internal constructor(
+		val name: String,
+		val method: Int,
+		val crc: Long,
+		val compressedSize: Int,
+		val size: Int,
+		internal val headerOffset: Int
+	) {
+		val isDirectory: Boolean
+			get() = name.endsWith('/')
+
+		override fun toString(): String = name
+	}
+
+	private val buffer: ByteBuffer
+	/** Every entry, in the order of the central directory */
+	val entries: List<Entry>
+	private val byName: Map<String, Entry>
+	@Volatile
+	private var closed = false
+
+	init {
+		buffer = FileChannel.open(file.toPath(), StandardOpenOption.READ).use { channel ->
+			if (channel.size() > Int.MAX_VALUE)
+				throw ZipException("$file is larger than 2GB")
+			channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+		}.order(ByteOrder.LITTLE_ENDIAN)
+		entries = readCentralDirectory()
+		byName = entries.associateByTo(HashMap(entries.size * 2)) { it.name }
+	}
+
+	val size: Int
+		get() = entries.size
+
+	operator fun get(name: String): Entry? = byName[name]
+
+	/**
+	 * Unmaps the archive now rather than once it is no longer referenced, so that the file can be replaced (Windows
+	 * refuses to while it is mapped). Neither the archive nor a view from [compressedBytes] may be read afterwards
+	 */
+	override fun close() {
+		if (closed)
+			return
+		closed = true
+		unmap(buffer)
+	}
+
+	private fun readCentralDirectory(): List<Entry> {
+		val end = findEndOfCentralDirectory()
+		var count = buffer.getShort(end + 10).toInt() and 0xFFFF
+		var length = buffer.getInt(end + 12).toLong() and 0xFFFFFFFFL
+		var offset = buffer.getInt(end + 16).toLong() and 0xFFFFFFFFL
+		// Where the central directory ends
+		var directoryEnd = end.toLong()
+		// Archives with more than 65535 entries keep the real count in the zip64 end of central directory record
+		val locator = end - 20
+		if (locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR) {
+			val zip64End = findZip64End(locator)
+			count = buffer.getLong(zip64End + 32).toInt()
+			length = buffer.getLong(zip64End + 40)
+			offset = buffer.getLong(zip64End + 48)
+			directoryEnd = zip64End.toLong()
+		}
+		// Offsets are from the start of the archive, which is not the start of the file if something was prepended to it
+		// (a launcher script, a self extracting stub). As in java.util.zip.ZipFile, the difference is where the central
+		// directory is against where it says it is
+		val prefix = directoryEnd - length - offset
+		if (prefix < 0)
+			throw ZipException("Invalid central directory offset in $file")
+
+		val entries = ArrayList<Entry>(count)
+		var at = (offset + prefix).toInt()
+		for (i in 0 until count) {
+			if (buffer.getInt(at) != CENTRAL_HEADER)
+				throw ZipException("Invalid central directory header in $file")
+			val method = buffer.getShort(at + 10).toInt() and 0xFFFF
+			val crc = buffer.getInt(at + 16).toLong() and 0xFFFFFFFFL
+			var compressedSize = buffer.getInt(at + 20)
+			var size = buffer.getInt(at + 24)
+			val nameLength = buffer.getShort(at + 28).toInt() and 0xFFFF
+			val extraLength = buffer.getShort(at + 30).toInt() and 0xFFFF
+			val commentLength = buffer.getShort(at + 32).toInt() and 0xFFFF
+			var headerOffset = buffer.getInt(at + 42)
+			val name = string(at + 46, nameLength)
+			// Fields that did not fit are in the zip64 extra field, in this order, if they were marked as not fitting
+			if (size == -1 || compressedSize == -1 || headerOffset == -1) {
+				var extra = at + 46 + nameLength
+				val extraEnd = extra + extraLength
+				while (extra + 4 <= extraEnd) {
+					val id = buffer.getShort(extra).toInt() and 0xFFFF
+					val length = buffer.getShort(extra + 2).toInt() and 0xFFFF
+					if (id == ZIP64_EXTRA) {
+						var field = extra + 4
+						if (size == -1) { size = buffer.getLong(field).toInt(); field += 8 }
+						if (compressedSize == -1) { compressedSize = buffer.getLong(field).toInt(); field += 8 }
+						if (headerOffset == -1) { headerOffset = buffer.getLong(field).toInt() }
+						break
+					}
+					extra += 4 + length
+				}
+			}
+			entries.add(Entry(name, method, crc, compressedSize, size, headerOffset + prefix.toInt()))
+			at += 46 + nameLength + extraLength + commentLength
+		}
+		return entries
+	}
+
+	/**
+	 * The zip64 end of central directory record, where the [locator] says it is or, if something was prepended to the
+	 * archive, right before the locator
+	 */
+	private fun findZip64End(locator: Int): Int {
+		val recorded = buffer.getLong(locator + 8)
+		if (recorded in 0..(locator - ZIP64_END_SIZE).toLong() && buffer.getInt(recorded.toInt()) == ZIP64_END)
+			return recorded.toInt()
+		val before = locator - ZIP64_END_SIZE
+		if (before >= 0 && buffer.getInt(before) == ZIP64_END)
+			return before
+		throw ZipException("Invalid zip64 end of central directory in $file")
+	}
+
+	private fun findEndOfCentralDirectory(): Int {
+		// The record is at the very end, followed by a comment of up to 65535 bytes
+		val last = buffer.limit() - 22
+		for (at in last downTo maxOf(last - 0xFFFF, 0)) {
+			if (buffer.getInt(at) == END_OF_CENTRAL_DIRECTORY)
+				return at
+		}
+		throw ZipException("$file is not a zip file")
+	}
+
+	private fun string(at: Int, length: Int): String {
+		val bytes = ByteArray(length)
+		copy(at, bytes, 0, length)
+		return String(bytes, Charsets.UTF_8)
+	}
+
+	private fun copy(at: Int, to: ByteArray, offset: Int, length: Int) {
+		val view = buffer.duplicate()
+		(view as Buffer).position(at)
+		view.get(to, offset, length)
+	}
+
+	private fun dataOffset(entry: Entry): Int {
+		if (closed)
+			throw ZipException("$file is closed")
+		val header = entry.headerOffset
+		if (buffer.getInt(header) != LOCAL_HEADER)
+			throw ZipException("Invalid local header for ${entry.name} in $file")
+		return header + 30 + (buffer.getShort(header + 26).toInt() and 0xFFFF) + (buffer.getShort(header + 28).toInt() and 0xFFFF)
+	}
+
+	/**
+	 * The contents of [entry] as they are stored in the archive, a view on the mapping
+	 */
+	fun compressedBytes(entry: Entry): ByteBuffer {
+		val data = dataOffset(entry)
+		val view = buffer.duplicate()
+		// Through Buffer, ByteBuffer only overrides these from Java 9
+		(view as Buffer).position(data).limit(data + entry.compressedSize)
+		return view
+	}
+
+	/**
+	 * The uncompressed contents of [entry]
+	 */
+	fun bytes(entry: Entry): ByteArray {
+		val data = dataOffset(entry)
+		val bytes = ByteArray(entry.size)
+		when (entry.method) {
+			STORED -> copy(data, bytes, 0, entry.size)
+			DEFLATED -> {
+				val scratch = scratch.get().let {
+					if (it.size >= entry.compressedSize) it else ByteArray(entry.compressedSize).also(scratch::set)
+				}
+				copy(data, scratch, 0, entry.compressedSize)
+				val inflater = inflater.get()
+				inflater.reset()
+				inflater.setInput(scratch, 0, entry.compressedSize)
+				var read = 0
+				while (read < entry.size) {
+					val n = inflater.inflate(bytes, read, entry.size - read)
+					if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+						throw ZipException("Truncated entry ${entry.name} in $file")
+					read += n
+				}
+			}
+			else -> throw ZipException("Unsupported compression method ${entry.method} for ${entry.name} in $file")
+		}
+		return bytes
+	}
+
+	fun bytes(name: String): ByteArray? = get(name)?.let(::bytes)
+
+	companion object {
+		const val STORED = 0
+		const val DEFLATED = 8
+
+		private const val LOCAL_HEADER = 0x04034b50
+		private const val CENTRAL_HEADER = 0x02014b50
+		private const val END_OF_CENTRAL_DIRECTORY = 0x06054b50
+		private const val ZIP64_LOCATOR = 0x07064b50
+		private const val ZIP64_END = 0x06064b50
+		private const val ZIP64_EXTRA = 0x0001
+		/** The size of a zip64 end of central directory record without extensible data */
+		private const val ZIP64_END_SIZE = 56
+
+		/** Deflated entries are read on many threads, each reuses its own inflater and input buffer */
+		private val inflater = ThreadLocal.withInitial { Inflater(true) }
+		private val scratch = ThreadLocal.withInitial { ByteArray(64 * 1024) }
+
+		/**
+		 * Releases a mapping through Unsafe.invokeCleaner on Java 9 and newer, or the cleaner of the buffer on Java 8.
+		 * If neither can be reached the mapping is released once it is no longer referenced
+		 */
+		private fun unmap(buffer: ByteBuffer) {
+			try {
+				val unsafeClass = Class.forName("sun.misc.Unsafe")
+				val unsafe = unsafeClass.getDeclaredField("theUnsafe").also { it.isAccessible = true }.get(null)
+				unsafeClass.getMethod("invokeCleaner", ByteBuffer::class.java).invoke(unsafe, buffer)
+			} catch (e: NoSuchMethodException) {
+				try {
+					val cleaner = buffer.javaClass.getMethod("cleaner").also { it.isAccessible = true }.invoke(buffer)
+					cleaner?.javaClass?.getMethod("clean")?.invoke(cleaner)
+				} catch (ignored: Throwable) {}
+			} catch (ignored: Throwable) {}
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package dev.binclub.binscure.classpath
+
+import org.objectweb.asm.Handle
+import org.objectweb.asm.Label
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.*
+import java.util.IdentityHashMap
+
+/**
+ * The stack map frames of an input method as it was read, taken out of its instructions so that processors never see
+ * them. If the code of the method is unchanged when it is written (see [compare]) its frames are written back as they
+ * were, only the frames of changed methods are computed (see [ClassPathIO.writeClassNode]).
+ *
+ * Processors change instructions in many ways, through [dev.binclub.binscure.utils.InstructionModifier], insn
+ * builders or the [InsnList] directly, so instead of being marked by each of them a method is dirty if the
+ * fingerprint of its code no longer matches the one taken when it was read. A method that is also unchanged outside of
+ * its code may be copied from the input class as it is
+ *
+ * @author cook 18/Oct/2026
+ */
+class OriginalFrames private constructor(
+	/** The position of the method in the class it was read from */
+	val index: Int,
+	private val fingerprint: Long,
+	/** The fingerprint of the rest of the method, see [Fingerprints] */
+	private val declaration: Long,
+	/**
+	 * Each frame, with the position of the instruction it is at. Uninitialized values are [Uninitialized] rather than
+	 * the label of their new instruction
+	 */
+	private val frames: List<Pair<Int, FrameNode>>
+) {
+	/** What has changed about a method since it was read */
+	enum class Change {
+		/** Its code, so its original frames no longer hold */
+		CODE,
+		/** Only its debug information, annotations or parameters */
+		DECLARATION,
+		/** Nothing, it is the same method as in the input class however it is named */
+		NONE
+	}
+	
+	/**
+	 * The uninitialized value created by the new instruction at [position]
+	 */
+	private class Uninitialized(val position: Int)
+	
+	/**
+	 * Compares [method] of [classNode] to the method as it was read
+	 */
+	fun compare(classNode: ClassNode, method: MethodNode): Change {
+		val fingerprints = Fingerprints(classNode, method)
+		if (fingerprints.code != fingerprint)
+			return Change.CODE
+		return if (fingerprints.declaration == declaration) Change.NONE else Change.DECLARATION
+	}
+	
+	/**
+	 * Adds the classes the frames refer to to [into]
+	 */
+	fun addTypes(into: MutableSet<Any>) {
+		for ((_, frame) in frames) {
+			frame.local?.forEach { if (it is String) into.add(it) }
+			frame.stack?.forEach { if (it is String) into.add(it) }
+		}
+	}
+
+	/**
+	 * Writes the original frames of a method to [methodVisitor] as its code is visited
+	 */
+	fun writer(methodVisitor: MethodVisitor?): MethodVisitor = object: MethodVisitor(Opcodes.ASM9, methodVisitor) {
+		private var position = 0
+		private var next = 0
+		/** The labels of the new instructions of uninitialized values, by their position */
+		private val labels = HashMap<Int, Label>()
+		
+		init {
+			for ((_, frame) in frames) {
+				frame.local?.forEach { if (it is Uninitialized) labels[it.position] = Label() }
+				frame.stack?.forEach { if (it is Uninitialized) labels[it.position] = Label() }
+			}
+		}
+		
+		private fun values(values: List<Any?>?): Array<Any?>? =
+			values?.map { if (it is Uninitialized) labels[it.position] else it }?.toTypedArray()
+		
+		/**
+		 * Visits what is at the instruction about to be visited, after its labels and line numbers
+		 */
+		private fun instruction() {
+			labels[position]?.let { super.visitLabel(it) }
+			while (next < frames.size && frames[next].first == position) {
+				val frame = frames[next++].second
+				// As in FrameNode.accept
+				when (frame.type) {
+					Opcodes.F_NEW, Opcodes.F_FULL -> super.visitFrame(
+						frame.type, frame.local.size, values(frame.local), frame.stack.size, values(frame.stack)
+					)
+					Opcodes.F_APPEND -> super.visitFrame(frame.type, frame.local.size, values(frame.local), 0, null)
+					Opcodes.F_CHOP -> super.visitFrame(frame.type, frame.local.size, null, 0, null)
+					Opcodes.F_SAME -> super.visitFrame(frame.type, 0, null, 0, null)
+					Opcodes.F_SAME1 -> super.visitFrame(frame.type, 0, null, 1, values(frame.stack))
+				}
+			}
+			position++
+		}
+		
+		override fun visitInsn(opcode: Int) {
+			instruction()
+			super.visitInsn(opcode)
+		}
+		
+		override fun visitIntInsn(opcode: Int, operand: Int) {
+			instruction()
+			super.visitIntInsn(opcode, operand)
+		}
+		
+		override fun visitVarInsn(opcode: Int, `var`: Int) {
+			instruction()
+			super.visitVarInsn(opcode, `var`)
+		}
+		
+		override fun visitTypeInsn(opcode: Int, type: String?) {
+			instruction()
+			super.visitTypeInsn(opcode, type)
+		}
+		
+		override fun visitFieldInsn(opcode: Int, owner: String?, name: String?, descriptor: String?) {
+			instruction()
+			super.visitFieldInsn(opcode, owner, name, descriptor)
+		}
+		
+		override fun visitMethodInsn(opcode: Int, owner: String?, name: String?, descriptor: String?, isInterface: Boolean) {
+			instruction()
+			super.visitMethodInsn(opcode, owner, name, descriptor, isInterface)
+		}
+		
+		override fun visitInvokeDynamicInsn(
+			name: String?,
+			descriptor: String?,
+			bootstrapMethodHandle: Handle?,
+			vararg bootstrapMethodArguments: Any?
+		) {
+			instruction()
+			super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, *bootstrapMethodArguments)
+		}
+		
+		override fun visitJumpInsn(opcode: Int, label: Label?) {
+			instruction()
+			super.visitJumpInsn(opcode, label)
+		}
+		
+		override fun visitLdcInsn(value: Any?) {
+			instruction()
+			super.visitLdcInsn(value)
+		}
+		
+		override fun visitIincInsn(`var`: Int, increment: Int) {
+			instruction()
+			super.visitIincInsn(`var`, increment)
+		}
+		
+		override fun visitTableSwitchInsn(min: Int, max: Int, dflt: Label?, vararg labels: Label?) {
+			instruction()
+			super.visitTableSwitchInsn(min, max, dflt, *labels)
+		}
+		
+		override fun visitLookupSwitchInsn(dflt: Label?, keys: IntArray?, labels: Array<out Label>?) {
+			instruction()
+			super.visitLookupSwitchInsn(dflt, keys, labels)
+		}
+		
+		override fun visitMultiANewArrayInsn(descriptor: String?, numDimensions: Int) {
+			instruction()
+			super.visitMultiANewArrayInsn(descriptor, numDimensions)
+		}
+	}
+
+	companion object {
+		/**
+		 * Takes the frames out of every method of [classNode], which was read with its frames, into [into]. Methods of
+		 * classes older than Java 7 are left out, they are written with computed frames as their frames are optional.
+		 * Returns true if any method was kept
+		 */
+		fun strip(classNode: ClassNode, into: MutableMap<MethodNode, OriginalFrames>): Boolean {
+			val keep = (classNode.version and 0xFFFF) >= Opcodes.V1_7
+			var kept = false
+			for ((index, method) in classNode.methods.withIndex()) {
+				val frames = ArrayList<Pair<Int, FrameNode>>()
+				val positions = IdentityHashMap<LabelNode, Int>()
+				var position = 0
+				var insn = method.instructions.first
+				while (insn != null) {
+					val next = insn.next
+					when (insn) {
+						is FrameNode -> {
+							frames.add(position to insn)
+							method.instructions.remove(insn)
+						}
+						is LabelNode -> positions[insn] = position
+						!is LineNumberNode -> position++
+					}
+					insn = next
+				}
+				if (!keep || method.instructions.size() == 0)
+					continue
+				// Every uninitialized value must come from a new instruction of the method
+				var anchored = true
+				val uninitialized = { value: Any? ->
+					if (value is LabelNode) {
+						positions[value]?.let { Uninitialized(it) } ?: value.also { anchored = false }
+					} else {
+						value
+					}
+				}
+				for ((_, frame) in frames) {
+					frame.local = frame.local?.map(uninitialized)
+					frame.stack = frame.stack?.map(uninitialized)
+				}
+				if (anchored) {
+					val fingerprints = Fingerprints(classNode, method)
+					into[method] = OriginalFrames(index, fingerprints.code, fingerprints.declaration, frames)
+					kept = true
+				}
+			}
+			return kept
+		}
+		
+		/**
+		 * Moves the frames of [previous], the methods of [classNode] before it was replaced with a copy read back from
+		 * its bytes (see [ClassCache.load]), to the methods of the copy with the same name and descriptor. Everything is
+		 * fingerprinted by the positions of instructions rather than by labels, which reading a method back can drop or
+		 * merge, so the copy of an unchanged method is still unchanged
+		 */
+		fun rebind(classNode: ClassNode, previous: List<MethodNode>, frames: MutableMap<MethodNode, OriginalFrames>) {
+			if (frames.isEmpty())
+				return
+			val byName = HashMap<String, OriginalFrames>()
+			for (method in previous) {
+				frames.remove(method)?.let { byName[method.name + method.desc] = it }
+			}
+			if (byName.isEmpty())
+				return
+			for (method in classNode.methods) {
+				byName[method.name + method.desc]?.let { frames[method] = it }
+			}
+		}
+	}
+	
+	/**
+	 * Fingerprints [method] in two passes over its instructions, the first finding the position of each label.
+	 *
+	 * [code] is everything about the code of the method that its frames depend on: the class it is in, its descriptor,
+	 * its instructions, the positions they jump to (labels themselves are not part of the code, reading a method back
+	 * drops the labels nothing refers to) and its try catch blocks.
+	 *
+	 * [declaration] is everything else that is written from the input class when the method is copied: its line
+	 * numbers, local variables, parameters, annotations and attributes. Its name and access are written from the method
+	 * as it is, and ASM only copies it if its descriptor, signature and exceptions are the same
+	 */
+	private class Fingerprints(classNode: ClassNode, method: MethodNode) {
+		/** The position of each label, the number of instructions before it */
+		private val positions = IdentityHashMap<LabelNode, Int>()
+		var code = OFFSET
+			private set
+		var declaration = OFFSET
+			private set
+		
+		/** The position of [label], or -1 if it is not an instruction of the method */
+		private fun position(label: LabelNode): Int = positions[label] ?: -1
+		
+		init {
+			var position = 0
+			var insn = method.instructions.first
+			while (insn != null) {
+				when (insn) {
+					is LabelNode -> positions[insn] = position
+					is LineNumberNode, is FrameNode -> {}
+					else -> position++
+				}
+				insn = insn.next
+			}
+			
+			var hash = OFFSET.mix(classNode.name).mix(method.access and Opcodes.ACC_STATIC).mix(method.desc)
+			var rest = OFFSET
+			insn = method.instructions.first
+			while (insn != null) {
+				if (insn.visibleTypeAnnotations != null || insn.invisibleTypeAnnotations != null) {
+					rest = rest.mix(insn.visibleTypeAnnotations).mix(insn.invisibleTypeAnnotations)
+				}
+				if (insn is LineNumberNode) {
+					rest = rest.mix(insn.line).mix(position(insn.start))
+					insn = insn.next
+					continue
+				}
+				if (insn is LabelNode || insn is FrameNode) {
+					insn = insn.next
+					continue
+				}
+				hash = hash.mix(insn.opcode)
+				hash = when (insn) {
+					is IntInsnNode -> hash.mix(insn.operand)
+					is VarInsnNode -> hash.mix(insn.`var`)
+					is TypeInsnNode -> hash.mix(insn.desc)
+					is FieldInsnNode -> hash.mix(insn.owner).mix(insn.name).mix(insn.desc)
+					is MethodInsnNode -> hash.mix(insn.owner).mix(insn.name).mix(insn.desc).mix(insn.itf)
+					is InvokeDynamicInsnNode -> hash.mix(insn.name).mix(insn.desc).mix(insn.bsm).mix(insn.bsmArgs?.contentHashCode())
+					is JumpInsnNode -> hash.mix(position(insn.label))
+					is LdcInsnNode -> hash.mix(insn.cst?.javaClass).mix(insn.cst)
+					is IincInsnNode -> hash.mix(insn.`var`).mix(insn.incr)
+					is TableSwitchInsnNode -> insn.labels.fold(hash.mix(insn.min).mix(insn.max).mix(position(insn.dflt))) { h, label ->
+						h.mix(position(label))
+					}
+					is LookupSwitchInsnNode -> insn.labels.foldIndexed(hash.mix(position(insn.dflt))) { i, h, label ->
+						h.mix(insn.keys[i]).mix(position(label))
+					}
+					is MultiANewArrayInsnNode -> hash.mix(insn.desc).mix(insn.dims)
+					else -> hash.mix(insn.javaClass)
+				}
+				insn = insn.next
+			}
+			method.tryCatchBlocks?.forEach {
+				hash = hash.mix(position(it.start)).mix(position(it.end)).mix(position(it.handler)).mix(it.type)
+				rest = rest.mix(it.visibleTypeAnnotations).mix(it.invisibleTypeAnnotations)
+			}
+			code = hash
+			
+			method.localVariables?.forEach {
+				rest = rest.mix(it.name).mix(it.desc).mix(it.signature).mix(position(it.start)).mix(position(it.end)).mix(it.index)
+			}
+			method.parameters?.forEach {
+				rest = rest.mix(it.name).mix(it.access)
+			}
+			declaration = rest
+				.mix(method.localVariables?.size ?: -1)
+				.mix(method.parameters?.size ?: -1)
+				.mix(method.visibleAnnotations).mix(method.invisibleAnnotations)
+				.mix(method.visibleTypeAnnotations).mix(method.invisibleTypeAnnotations)
+				.mix(method.visibleLocalVariableAnnotations).mix(method.invisibleLocalVariableAnnotations)
+				.mix(method.visibleAnnotableParameterCount).mix(method.invisibleAnnotableParameterCount)
+				.mix(method.visibleParameterAnnotations).mix(method.invisibleParameterAnnotations)
+				.mix(method.annotationDefault)
+				.mix(method.attrs)
+		}
+		
+		private fun Long.mix(annotations: List<AnnotationNode>?): Long =
+			annotations.orEmpty().fold(mix(annotations?.size ?: -1)) { hash, annotation ->
+				val typed = when (annotation) {
+					is LocalVariableAnnotationNode -> annotation.end.fold(
+						annotation.start.fold(hash.mix(annotation.typeRef).mix(annotation.typePath?.toString())) { h, label ->
+							h.mix(position(label))
+						}
+					) { h, label ->
+						h.mix(position(label))
+					}.mix(annotation.index)
+					is TypeAnnotationNode -> hash.mix(annotation.typeRef).mix(annotation.typePath?.toString())
+					else -> hash
+				}
+				typed.mix(annotation.desc).mixValue(annotation.values)
+			}
+		
+		private fun Long.mix(annotations: Array<out List<AnnotationNode>?>?): Long =
+			annotations.orEmpty().fold(mix(annotations?.size ?: -1)) { hash, it -> hash.mix(it) }
+	}
+}
+
+private const val OFFSET = -0x340d631b7bdddcdbL
+
+private fun Long.mix(value: Int): Long = (this xor value.toLong()) * 0x100000001b3L
+private fun Long.mix(value: Any?): Long = mix(value?.hashCode() ?: 0)
+
+/**
+ * Mixes an annotation value by its content, enum values are arrays and nested annotations are nodes
+ */
+private fun Long.mixValue(value: Any?): Long = when (value) {
+	is List<*> -> value.fold(mix(value.size)) { hash, it -> hash.mixValue(it) }
+	is Array<*> -> value.fold(mix(value.size)) { hash, it -> hash.mixValue(it) }
+	is AnnotationNode -> mix(value.desc).mixValue(value.values)
+	else -> mix(value)
+}
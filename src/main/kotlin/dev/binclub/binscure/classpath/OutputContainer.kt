@@ -0,0 +1,36 @@
+package dev.binclub.binscure.classpath
+
+import java.io.Closeable
+
+/**
+ * Where the output entries go, a jar ([ZipWriter]) or a directory ([DirectoryWriter]).
+ *
+ * An entry is first prepared with [prepare] or [prepareCopy], which is thread safe and done on the pool (compressing the
+ * entry, or writing it to its own file), then written with [write] in the order entries appear in the output
+ *
+ * @author cook 18/Oct/2026
+ */
+interface OutputContainer: Closeable {
+	/** An entry returned by [prepare] or [prepareCopy], to be given to [write] */
+	interface Prepared
+
+	/** True if entries may share a name and have a checksum other than their own, which the crasher relies on */
+	val isArchive: Boolean
+
+	/**
+	 * Prepares [bytes] to be written as [name], compressed unless [compress] is false
+	 */
+	fun prepare(name: String, bytes: ByteArray, compress: Boolean = true): Prepared
+
+	/**
+	 * Prepares [entry] of [from] to be written as [name], still compressed if possible
+	 */
+	fun prepareCopy(name: String, from: MappedZip, entry: MappedZip.Entry): Prepared
+
+	/**
+	 * Writes an entry prepared by this container as [name], with the checksum [crc] instead of its own if given
+	 */
+	fun write(name: String, prepared: Prepared, crc: Long? = null)
+
+	fun write(name: String, bytes: ByteArray, crc: Long? = null) = write(name, prepare(name, bytes), crc)
+}
@@ -0,0 +1,222 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.CObfuscator
+import dev.binclub.binscure.CObfuscator.random
+import dev.binclub.binscure.ObfuscationContext
+import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.metrics.StageMetrics
+import dev.binclub.binscure.metrics.usage
+import dev.binclub.binscure.utils.RandomStreams
+import dev.binclub.binscure.utils.isExcluded
+import org.objectweb.asm.tree.ClassNode
+import java.io.Closeable
+import java.io.File
+import java.util.ArrayDeque
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.function.Supplier
+
+/**
+ * Writes the output jar (or directory, see [dev.binclub.binscure.api.RootConfiguration.explodedOutput]) one entry at
+ * a time, so that entries can be released as soon as they are written.
+ *
+ * [hierarchy] fingerprints the hierarchy the classes are written against, it is only computed if there is a class
+ * cache (see [ClassCache.written]). The cpu time and allocations of classes serialized on the pool are added to
+ * [metrics]
+ *
+ * @author cook 18/Oct/2026
+ */
+class OutputWriter(
+	private val classSources: ClassSources,
+	file: File,
+	hierarchy: () -> ByteArray,
+	private val metrics: StageMetrics? = null
+): Closeable {
+	private val container: OutputContainer = if (rootConfig.explodedOutput) {
+		DirectoryWriter(file)
+	} else {
+		ZipWriter(file, rootConfig.compressionLevel)
+	}
+	private val fakeChecksums = rootConfig.crasher.enabled && rootConfig.crasher.checksums && container.isArchive
+	/** Written in front of every class when checksums are broken, drawn from the seed of the run */
+	private val garbageClass = if (fakeChecksums) {
+		RandomStreams.withStream("crasher") { ByteArray(31).also(random::nextBytes) }
+	} else {
+		ByteArray(0)
+	}
+	private val compressClasses = !rootConfig.storeClasses
+	private val lineChar = rootConfig.getLineChar()
+	private val cache = CObfuscator.classCache
+	private val hierarchy by lazy(hierarchy)
+	private var lastPrint = 0L
+
+	init {
+		if (fakeChecksums) {
+			container.write("â\u3B25\u00d4\ud400®©¯\u00EB\u00A9\u00AE\u008D\u00AA\u002E", ByteArray(0))
+		}
+	}
+
+	/**
+	 * Prints "Writing [what]" with the progress made, at most every 200ms
+	 */
+	fun progress(what: String, i: Int, size: Int) {
+		if (!rootConfig.printProgress)
+			return
+		val now = System.currentTimeMillis()
+		if (now - lastPrint >= 200L) {
+			lastPrint = now
+			val percentStr = ((i.toFloat() / size) * 100).toInt().toString().padStart(3, ' ')
+			print("${lineChar}Writing $what ($percentStr% - $i/${size})".padEnd(100, ' '))
+		}
+	}
+
+	fun endProgress() {
+		if (rootConfig.printProgress) {
+			print(lineChar)
+		}
+	}
+
+	fun writeResource(name: String, bytes: ByteArray) {
+		container.write(name, container.prepare(name, bytes, compress(name)))
+	}
+
+	/**
+	 * Classes added to the resources are stored like any other class, see
+	 * [dev.binclub.binscure.api.RootConfiguration.storeClasses]
+	 */
+	private fun compress(name: String) = compressClasses || !name.endsWith(".class")
+
+	/**
+	 * Prepares [name] of [resources], to be copied from the input jar still compressed if it was not replaced
+	 */
+	private fun prepare(resources: PassThroughMap, name: String): OutputContainer.Prepared {
+		val raw = resources.raw(name)
+		return if (raw != null) {
+			container.prepareCopy(name, raw.zip, raw.entry)
+		} else {
+			container.prepare(name, resources[name]!!, compress(name))
+		}
+	}
+
+	fun writePassThrough(resources: PassThroughMap, name: String) = container.write(name, prepare(resources, name))
+
+	/**
+	 * Writes every file of [resources] in order, compressing the files that were replaced on the pool
+	 */
+	fun writePassThrough(resources: PassThroughMap) {
+		val names = ArrayList(resources.keys)
+		ordered(names, { name -> prepare(resources, name) }) { i, name, prepared ->
+			progress("resources", i, names.size)
+			container.write(name, prepared)
+		}
+	}
+
+	fun writeClass(classNode: ClassNode) = write(serialize(classNode))
+
+	/**
+	 * Writes [classes] in order, [written] classes having been written before out of [total].
+	 *
+	 * Classes are shuffled, serialized and compressed on the pool (computing frames is most of the time spent writing),
+	 * and written here in their order. The jar is the same as if they had been written one at a time
+	 */
+	fun writeClasses(classes: Collection<ClassNode>, written: Int = 0, total: Int = classes.size) {
+		ordered(classes, ::serialize) { i, _, serialized ->
+			progress("classes", written + i, total)
+			write(serialized)
+		}
+	}
+
+	/**
+	 * Calls [write] with each of [items] and its result of [prepare] in order. Items are prepared on the pool, a few per
+	 * thread ahead of the item being written
+	 */
+	private fun <T, R> ordered(items: Collection<T>, prepare: (T) -> R, write: (Int, T, R) -> Unit) {
+		val pool = CObfuscator.pool
+		if (pool.parallelism <= 1) {
+			for ((i, item) in items.withIndex()) {
+				write(i, item, prepare(item))
+			}
+			return
+		}
+
+		val context = ObfuscationContext.current()
+		val window = pool.parallelism * 4
+		val pending = ArrayDeque<Pair<T, CompletableFuture<R>>>(window)
+		val iterator = items.iterator()
+		var i = 0
+		while (iterator.hasNext() || pending.isNotEmpty()) {
+			while (pending.size < window && iterator.hasNext()) {
+				val item = iterator.next()
+				pending.add(item to CompletableFuture.supplyAsync(Supplier {
+					ObfuscationContext.with(context) {
+						metrics.usage {
+							prepare(item)
+						}
+					}
+				}, pool))
+			}
+			val (item, future) = pending.removeFirst()
+			val prepared = try {
+				future.join()
+			} catch (e: CompletionException) {
+				throw e.cause ?: e
+			}
+			write(i++, item, prepared)
+		}
+	}
+
+	private class Serialized(val classNode: ClassNode, val excluded: Boolean, val prepared: OutputContainer.Prepared?)
+
+	/**
+	 * Shuffles, writes and compresses [classNode], which only depends on the class itself so classes can be serialized
+	 * concurrently
+	 */
+	private fun serialize(classNode: ClassNode): Serialized {
+		val excluded = rootConfig.tExclusions.isExcluded(classNode)
+		if (!excluded) {
+			RandomStreams.withStream("write", classNode.name) {
+				if (rootConfig.shuffleFields) {
+					classNode.fields?.shuffle(random)
+				}
+				if (rootConfig.shuffleMethods) {
+					classNode.methods?.shuffle(random)
+				}
+				if (rootConfig.shuffleClasses) {
+					classNode.innerClasses?.shuffle(random)
+				}
+			}
+		}
+
+		val frames = rootConfig.writeStackMap && classNode.verify
+		val arr = if (cache != null) {
+			cache.written(classNode, frames, hierarchy) {
+				ClassPathIO.writeClass(classSources, classNode, frames, lineChar)
+			}
+		} else {
+			ClassPathIO.writeClass(classSources, classNode, frames, lineChar)
+		}
+		val prepared = arr?.let { container.prepare("${classNode.name}.class", it, compressClasses) }
+		return Serialized(classNode, excluded, prepared)
+	}
+
+	private fun write(serialized: Serialized) {
+		val name = "${serialized.classNode.name}.class"
+		val crc = if (!serialized.excluded && fakeChecksums) FAKE_CRC else null
+
+		if (crc != null) {
+			container.write(name + "\u0000", byteArrayOf(0xAD.toByte(), 0xEF.toByte()), crc)
+			container.write(name, garbageClass, crc)
+		}
+
+		if (serialized.prepared != null) {
+			container.write(name, serialized.prepared, crc)
+		}
+	}
+
+	override fun close() = container.close()
+
+	companion object {
+		/** The checksum of every class entry when the crasher breaks checksums */
+		private const val FAKE_CRC = 0xDEADBEEF
+	}
+}
@@ -0,0 +1,73 @@
+package dev.binclub.binscure.classpath
+
+/**
+ * The files of a source that are passed through to the output as they are, by name and in the order they were added.
+ *
+ * Files of the input jar are only referenced with [putRaw] and inflated whenever they are read. A file that is never
+ * replaced stays a reference and is copied to the output still compressed (see [raw]), so the resources processors
+ * do not touch cost neither time nor heap
+ *
+ * @author cook 18/Oct/2026
+ */
+class PassThroughMap: AbstractMutableMap<String, ByteArray>() {
+	class RawEntry(val zip: MappedZip, val entry: MappedZip.Entry)
+
+	private val map = LinkedHashMap<String, Any>()
+
+	private fun Any.bytes(): ByteArray = if (this is RawEntry) zip.bytes(entry) else this as ByteArray
+
+	override val size: Int
+		get() = map.size
+
+	override fun containsKey(key: String): Boolean = map.containsKey(key)
+
+	override fun get(key: String): ByteArray? = map[key]?.bytes()
+
+	override fun put(key: String, value: ByteArray): ByteArray? = map.put(key, value)?.bytes()
+
+	override fun remove(key: String): ByteArray? = map.remove(key)?.bytes()
+
+	override fun clear() = map.clear()
+
+	/**
+	 * Adds [entry] of [zip] as [name], without reading it
+	 */
+	fun putRaw(name: String, zip: MappedZip, entry: MappedZip.Entry) {
+		map[name] = RawEntry(zip, entry)
+	}
+
+	/**
+	 * The input entry that [name] is still a reference to, or null if it was replaced or added as bytes
+	 */
+	fun raw(name: String): RawEntry? = map[name] as? RawEntry
+
+	override val entries: MutableSet<MutableMap.MutableEntry<String, ByteArray>> =
+		object: AbstractMutableSet<MutableMap.MutableEntry<String, ByteArray>>() {
+			override val size: Int
+				get() = map.size
+
+			override fun add(element: MutableMap.MutableEntry<String, ByteArray>): Boolean =
+				throw UnsupportedOperationException()
+
+			override fun iterator() = object: MutableIterator<MutableMap.MutableEntry<String, ByteArray>> {
+				private val iterator = map.entries.iterator()
+
+				override fun hasNext(): Boolean = iterator.hasNext()
+
+				override fun next(): MutableMap.MutableEntry<String, ByteArray> {
+					val entry = iterator.next()
+					// Only inflated if the value is asked for
+					return object: MutableMap.MutableEntry<String, ByteArray> {
+						override val key: String
+							get() = entry.key
+						override val value: ByteArray
+							get() = entry.value.bytes()
+
+						override fun setValue(newValue: ByteArray): ByteArray = entry.setValue(newValue).bytes()
+					}
+				}
+
+				override fun remove() = iterator.remove()
+			}
+		}
+}
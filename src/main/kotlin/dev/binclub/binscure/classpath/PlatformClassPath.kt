@@ -0,0 +1,170 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.classpath.tree.ClassSummaryTreeEntry
+import dev.binclub.binscure.classpath.tree.ClassTreeEntry
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.Opcodes
+import java.io.File
+import java.io.IOException
+import java.net.URI
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.util.Optional
+import java.util.concurrent.ConcurrentHashMap
+import java.util.stream.Collectors
+
+/**
+ * The classes of the Java platform of [release], read for their hierarchy (see [ClassSummaryTreeEntry]) from the
+ * class files of the JDK rather than loaded into the obfuscator.
+ *
+ * The release the obfuscator runs on is read from its run time image (the jrt:/ file system, or the boot and extension
+ * class paths on Java 8), older releases from the ct.sym of the JDK. Each class is only read the first time it is
+ * asked for, and is then kept for every source and job targeting the same release
+ *
+ * @author cook 18/Oct/2026
+ */
+class PlatformClassPath private constructor(val release: Int) {
+	private interface Image {
+		/** The class file of [name], or null if there is no such class */
+		fun bytes(name: String): ByteArray?
+	}
+
+	private val entries = ConcurrentHashMap<String, Optional<ClassTreeEntry>>()
+
+	private val image: Image by lazy {
+		val home = File(System.getProperty("java.home"))
+		if (release == HOST_RELEASE) {
+			hostImage(home)
+		} else {
+			val ctSym = File(home, "lib/ct.sym")
+			ctSym.takeIf { it.isFile }?.let { CtSymImage(it, release) }?.takeIf { it.size > 0 } ?: run {
+				println("\rWarning: Release $release is not known to the JDK at $home, using its own classes instead")
+				hostImage(home)
+			}
+		}
+	}
+
+	/**
+	 * The hierarchy entry of the platform class [name], or null if there is no such class
+	 */
+	fun find(name: String): ClassTreeEntry? = entries.computeIfAbsent(name) {
+		val bytes = try {
+			image.bytes(name)
+		} catch (e: IOException) {
+			null
+		}
+		Optional.ofNullable(bytes?.let { ClassSummaryTreeEntry.read(ClassReader(readable(it))) })
+	}.orElse(null)
+
+	private class JrtImage: Image {
+		private val fileSystem = FileSystems.getFileSystem(URI.create("jrt:/"))
+		/** The modules of each package, most packages are only in one */
+		private val modules = ConcurrentHashMap<String, List<String>>()
+
+		override fun bytes(name: String): ByteArray? {
+			val pkg = name.substringBeforeLast('/', "")
+			val modules = modules.computeIfAbsent(pkg) {
+				val directory = fileSystem.getPath("/packages", pkg.replace('/', '.'))
+				if (pkg.isEmpty() || !Files.isDirectory(directory)) {
+					emptyList()
+				} else {
+					Files.list(directory).use { modules ->
+						modules.map { it.fileName.toString() }.collect(Collectors.toList())
+					}
+				}
+			}
+			for (module in modules) {
+				val file = fileSystem.getPath("/modules", module, "$name.class")
+				if (Files.exists(file))
+					return Files.readAllBytes(file)
+			}
+			return null
+		}
+	}
+
+	/**
+	 * The jars and directories of the boot and extension class paths of Java 8, searched in order
+	 */
+	private class ClassPathImage(files: List<File>): Image {
+		private val paths: List<(String) -> ByteArray?> = files.mapNotNull { file ->
+			when {
+				file.isFile -> MappedZip(file).let { jar -> { name: String -> jar.bytes(name) } }
+				file.isDirectory -> { name: String -> File(file, name).takeIf { it.isFile }?.readBytes() }
+				else -> null
+			}
+		}
+
+		override fun bytes(name: String): ByteArray? = paths.firstNotNullOfOrNull { it("$name.class") }
+	}
+
+	/**
+	 * The signature files of [release] in ct.sym. Each file is under a directory named with every release it is the
+	 * same in (one character each, 8, 9, A for 10...), then since Java 9 under the name of its module
+	 */
+	private class CtSymImage(file: File, release: Int): Image {
+		private val zip = MappedZip(file)
+		private val classes = HashMap<String, MappedZip.Entry>()
+
+		init {
+			val tag = Character.toUpperCase(Character.forDigit(release, 36))
+			for (entry in zip.entries) {
+				val releases = entry.name.substringBefore('/')
+				if (!entry.name.endsWith(".sig") || tag !in releases)
+					continue
+				var name = entry.name.substring(releases.length + 1).removeSuffix(".sig")
+				// Module names have a dot, the first part of a package name never does
+				if ('.' in name.substringBefore('/')) {
+					name = name.substringAfter('/')
+				}
+				classes[name] = entry
+			}
+		}
+
+		val size: Int
+			get() = classes.size
+
+		override fun bytes(name: String): ByteArray? = classes[name]?.let(zip::bytes)
+	}
+
+	companion object {
+		/** The release of the JDK the obfuscator is running on */
+		val HOST_RELEASE = System.getProperty("java.specification.version").removePrefix("1.").toInt()
+
+		private val platforms = ConcurrentHashMap<Int, PlatformClassPath>()
+
+		/**
+		 * The platform of [release], or of the JDK the obfuscator is running on if null
+		 */
+		fun of(release: Int?): PlatformClassPath = platforms.computeIfAbsent(release ?: HOST_RELEASE, ::PlatformClassPath)
+
+		private fun hostImage(home: File): Image =
+			if (HOST_RELEASE >= 9) JrtImage() else ClassPathImage(bootClassPath(home) + extensions(home))
+
+		/** rt.jar and the other jars of the platform (jce, jsse, charsets...) */
+		private fun bootClassPath(home: File): List<File> =
+			System.getProperty("sun.boot.class.path")?.split(File.pathSeparator)?.filter { it.isNotEmpty() }?.map(::File)
+				?: listOf(File(home, "lib/rt.jar"))
+
+		/** The jars of the extension directories, lib/ext unless set otherwise */
+		private fun extensions(home: File): List<File> =
+			(System.getProperty("java.ext.dirs")?.split(File.pathSeparator)?.filter { it.isNotEmpty() }?.map(::File)
+				?: listOf(File(home, "lib/ext")))
+				.flatMap { directory ->
+					directory.listFiles { file -> file.isFile && file.name.endsWith(".jar") }?.sortedBy { it.name }
+						?: emptyList()
+				}
+
+		/**
+		 * Only the declarations of platform classes are read, which ASM can read whatever the class file version. A
+		 * version newer than ASM knows is replaced with Java 8
+		 */
+		private fun readable(bytes: ByteArray): ByteArray {
+			val major = ((bytes[6].toInt() and 0xFF) shl 8) or (bytes[7].toInt() and 0xFF)
+			if (major > Opcodes.V17) {
+				bytes[6] = 0
+				bytes[7] = Opcodes.V1_8.toByte()
+			}
+			return bytes
+		}
+	}
+}
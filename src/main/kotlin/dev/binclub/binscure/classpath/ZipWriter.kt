@@ -0,0 +1,255 @@
+package dev.binclub.binscure.classpath
+
+import java.io.File
+import java.nio.Buffer
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.time.Instant
+import java.time.LocalDateTime
+import java.time.ZoneId
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+
+/**
+ * Writes a zip (or jar) archive. Entries are deflated at [level] (or stored) beforehand on any thread with [prepare],
+ * entries being compressed independently so they can be compressed in parallel and written in order, or copied still
+ * compressed from another archive with [prepareCopy]. A [level] of 0 stores every entry.
+ *
+ * Unlike [java.util.zip.ZipOutputStream] entries may share a name and may be given a checksum that does not match
+ * their contents, which the crasher relies on (see [dev.binclub.binscure.api.transformers.CrasherConfiguration])
+ *
+ * An existing [file] is only replaced once the archive is complete. The output may be the input, which is still mapped
+ * and read from (entries are copied from it as they are) while the output is written, so it is written beside it and
+ * moved into place on [close]
+ *
+ * @author cook 18/Oct/2026
+ */
+class ZipWriter(private val file: File, private val level: Int = Deflater.DEFAULT_COMPRESSION): OutputContainer {
+	private class CentralEntry(
+		val name: ByteArray,
+		val method: Int,
+		val crc: Long,
+		val compressedSize: Int,
+		val size: Int,
+		val offset: Long
+	)
+
+	private val temp = if (file.exists()) File.createTempFile(file.name, ".tmp", file.absoluteFile.parentFile) else null
+	private val channel = FileChannel.open(
+		(temp ?: file).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+	)
+	private val buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN)
+	private var position = 0L
+	private val central = ArrayList<CentralEntry>()
+	private val time = dosTime(System.currentTimeMillis())
+
+	/**
+	 * An entry compressed (or stored) ahead of being written, see [prepare]
+	 */
+	class Compressed internal constructor(
+		val method: Int,
+		val size: Int,
+		val crc: Long,
+		internal val data: ByteBuffer
+	): OutputContainer.Prepared
+
+	override val isArchive: Boolean
+		get() = true
+
+	/**
+	 * Deflates [bytes] at [level] to be written later, or only checksums them if they are not to be compressed. This
+	 * can be done on any thread
+	 */
+	override fun prepare(name: String, bytes: ByteArray, compress: Boolean): Compressed {
+		val crc = CRC32()
+		crc.update(bytes)
+		if (!compress || level == Deflater.NO_COMPRESSION)
+			return Compressed(MappedZip.STORED, bytes.size, crc.value, ByteBuffer.wrap(bytes))
+
+		val deflater = deflater.get()
+		deflater.reset()
+		deflater.setLevel(level)
+		deflater.setInput(bytes)
+		deflater.finish()
+		var deflated = scratch.get()
+		var length = 0
+		while (!deflater.finished()) {
+			if (length == deflated.size) {
+				deflated = deflated.copyOf(deflated.size * 2)
+				scratch.set(deflated)
+			}
+			length += deflater.deflate(deflated, length, deflated.size - length)
+		}
+		return Compressed(MappedZip.DEFLATED, bytes.size, crc.value, ByteBuffer.wrap(deflated.copyOf(length)))
+	}
+
+	/**
+	 * Prepares [entry] of [from] to be copied with its compressed contents and checksum as they are
+	 */
+	override fun prepareCopy(name: String, from: MappedZip, entry: MappedZip.Entry): Compressed =
+		Compressed(entry.method, entry.size, entry.crc, from.compressedBytes(entry))
+
+	override fun write(name: String, prepared: OutputContainer.Prepared, crc: Long?) {
+		val compressed = prepared as Compressed
+		writeEntry(name, compressed.method, crc ?: compressed.crc, compressed.size, compressed.data.duplicate())
+	}
+
+	private fun writeEntry(name: String, method: Int, crc: Long, size: Int, data: ByteBuffer) {
+		val nameBytes = name.toByteArray(Charsets.UTF_8)
+		val compressedSize = data.remaining()
+		central.add(CentralEntry(nameBytes, method, crc, compressedSize, size, position))
+
+		reserve(30 + nameBytes.size)
+		buffer.putInt(LOCAL_HEADER)
+		buffer.putShort(versionNeeded(method))
+		buffer.putShort(UTF8_FLAG)
+		buffer.putShort(method.toShort())
+		buffer.putInt(time)
+		buffer.putInt(crc.toInt())
+		buffer.putInt(compressedSize)
+		buffer.putInt(size)
+		buffer.putShort(nameBytes.size.toShort())
+		buffer.putShort(0)
+		buffer.put(nameBytes)
+		position += 30 + nameBytes.size
+		write(data)
+	}
+
+	override fun close() {
+		try {
+			val start = position
+			for (entry in central) {
+				// Entries past 4GB have their offset in a zip64 extra field
+				val zip64 = entry.offset >= MAX_32
+				reserve(46 + entry.name.size + 12)
+				buffer.putInt(CENTRAL_HEADER)
+				buffer.putShort(if (zip64) ZIP64_VERSION else versionNeeded(entry.method))
+				buffer.putShort(if (zip64) ZIP64_VERSION else versionNeeded(entry.method))
+				buffer.putShort(UTF8_FLAG)
+				buffer.putShort(entry.method.toShort())
+				buffer.putInt(time)
+				buffer.putInt(entry.crc.toInt())
+				buffer.putInt(entry.compressedSize)
+				buffer.putInt(entry.size)
+				buffer.putShort(entry.name.size.toShort())
+				buffer.putShort((if (zip64) 12 else 0).toShort())
+				buffer.putShort(0) // comment
+				buffer.putShort(0) // disk
+				buffer.putShort(0) // internal attributes
+				buffer.putInt(0) // external attributes
+				buffer.putInt(if (zip64) -1 else entry.offset.toInt())
+				buffer.put(entry.name)
+				if (zip64) {
+					buffer.putShort(ZIP64_EXTRA)
+					buffer.putShort(8)
+					buffer.putLong(entry.offset)
+				}
+				position += 46 + entry.name.size + if (zip64) 12 else 0
+			}
+			val size = position - start
+
+			val zip64 = central.size >= 0xFFFF || start >= MAX_32 || size >= MAX_32
+			if (zip64) {
+				val end = position
+				reserve(56 + 20)
+				buffer.putInt(ZIP64_END)
+				buffer.putLong(44)
+				buffer.putShort(ZIP64_VERSION)
+				buffer.putShort(ZIP64_VERSION)
+				buffer.putInt(0)
+				buffer.putInt(0)
+				buffer.putLong(central.size.toLong())
+				buffer.putLong(central.size.toLong())
+				buffer.putLong(size)
+				buffer.putLong(start)
+				buffer.putInt(ZIP64_LOCATOR)
+				buffer.putInt(0)
+				buffer.putLong(end)
+				buffer.putInt(1)
+				position += 56 + 20
+			}
+			reserve(22)
+			buffer.putInt(END_OF_CENTRAL_DIRECTORY)
+			buffer.putShort(0)
+			buffer.putShort(0)
+			buffer.putShort((if (zip64) -1 else central.size).toShort())
+			buffer.putShort((if (zip64) -1 else central.size).toShort())
+			buffer.putInt(if (zip64) -1 else size.toInt())
+			buffer.putInt(if (zip64) -1 else start.toInt())
+			buffer.putShort(0)
+			position += 22
+			flush()
+			channel.close()
+			if (temp != null) {
+				try {
+					Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+				} catch (e: AtomicMoveNotSupportedException) {
+					Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING)
+				}
+			}
+		} finally {
+			channel.close()
+			temp?.delete()
+		}
+	}
+
+	private fun reserve(bytes: Int) {
+		if (buffer.remaining() < bytes) {
+			flush()
+		}
+	}
+
+	private fun flush() {
+		(buffer as Buffer).flip()
+		while (buffer.hasRemaining()) {
+			channel.write(buffer)
+		}
+		(buffer as Buffer).clear()
+	}
+
+	private fun write(data: ByteBuffer) {
+		position += data.remaining()
+		if (data.remaining() <= buffer.remaining()) {
+			buffer.put(data)
+		} else {
+			flush()
+			while (data.hasRemaining()) {
+				channel.write(data)
+			}
+		}
+	}
+
+	companion object {
+		private const val LOCAL_HEADER = 0x04034b50
+		private const val CENTRAL_HEADER = 0x02014b50
+		private const val END_OF_CENTRAL_DIRECTORY = 0x06054b50
+		private const val ZIP64_LOCATOR = 0x07064b50
+		private const val ZIP64_END = 0x06064b50
+		private const val ZIP64_EXTRA: Short = 0x0001
+		private const val ZIP64_VERSION: Short = 45
+		private const val UTF8_FLAG: Short = 0x800
+		private const val MAX_32 = 0xFFFFFFFFL
+
+		/** Entries are deflated on many threads, each reuses its own deflater and output buffer */
+		private val deflater = ThreadLocal.withInitial { Deflater(Deflater.DEFAULT_COMPRESSION, true) }
+		private val scratch = ThreadLocal.withInitial { ByteArray(64 * 1024) }
+
+		private fun versionNeeded(method: Int): Short = if (method == MappedZip.STORED) 10 else 20
+
+		/**
+		 * The MS-DOS date (high half) and time (low half) of [millis], as written by [java.util.zip.ZipOutputStream]
+		 */
+		private fun dosTime(millis: Long): Int {
+			val time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault())
+			if (time.year < 1980)
+				return (1 shl 21) or (1 shl 16)
+			return ((time.year - 1980) shl 25) or (time.monthValue shl 21) or (time.dayOfMonth shl 16) or
+				(time.hour shl 11) or (time.minute shl 5) or (time.second shr 1)
+		}
+	}
+}
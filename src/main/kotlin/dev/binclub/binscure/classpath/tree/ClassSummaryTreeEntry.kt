@@ -0,0 +1,81 @@
+package dev.binclub.binscure.classpath.tree
+
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassVisitor
+import org.objectweb.asm.FieldVisitor
+import org.objectweb.asm.MethodVisitor
+import org.objectweb.asm.Opcodes
+
+/**
+ * The hierarchy entry of a class that is not kept in memory, read from its header and member declarations only
+ *
+ * @author cook 18/Oct/2026
+ */
+class ClassSummaryTreeEntry private constructor(
+	private val name: String,
+	private val access: Int,
+	private val superName: String?,
+	private val supers: Set<String>,
+	private val methods: Set<MethodInfo>,
+	private val fields: Set<FieldInfo>
+): ClassTreeEntry() {
+	override fun getName(): String = name
+	override fun getDirectSuper(): String? = superName
+	override fun getSuperClasses(): Set<String> = supers
+	override fun getAccess(): Int = access
+	override fun getMethods(): Set<MethodInfo> = methods
+	override fun getFields(): Set<FieldInfo> = fields
+
+	companion object {
+		const val READER_FLAGS = ClassReader.SKIP_CODE or ClassReader.SKIP_DEBUG or ClassReader.SKIP_FRAMES
+
+		fun read(reader: ClassReader): ClassSummaryTreeEntry {
+			val visitor = SummaryVisitor()
+			reader.accept(visitor, READER_FLAGS)
+			return visitor.summary
+		}
+	}
+
+	private class SummaryVisitor: ClassVisitor(Opcodes.ASM9) {
+		private lateinit var name: String
+		private var access = 0
+		private var superName: String? = null
+		private val supers = LinkedHashSet<String>()
+		private val methods = HashSet<MethodInfo>()
+		private val fields = HashSet<FieldInfo>()
+
+		val summary: ClassSummaryTreeEntry
+			get() = ClassSummaryTreeEntry(name, access, superName, supers, methods, fields)
+
+		override fun visit(
+			version: Int,
+			access: Int,
+			name: String,
+			signature: String?,
+			superName: String?,
+			interfaces: Array<out String>?
+		) {
+			this.name = name
+			this.access = access
+			this.superName = superName
+			superName?.let(supers::add)
+			interfaces?.let(supers::addAll)
+		}
+
+		override fun visitField(access: Int, name: String, descriptor: String, signature: String?, value: Any?): FieldVisitor? {
+			fields.add(FieldInfo(this.name, name, descriptor))
+			return null
+		}
+
+		override fun visitMethod(
+			access: Int,
+			name: String,
+			descriptor: String,
+			signature: String?,
+			exceptions: Array<out String>?
+		): MethodVisitor? {
+			methods.add(MethodInfo(this.name, name, descriptor))
+			return null
+		}
+	}
+}
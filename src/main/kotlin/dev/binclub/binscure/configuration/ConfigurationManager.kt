@@ -2,6 +2,7 @@ package dev.binclub.binscure.configuration
 
 import com.sksamuel.hoplite.ConfigLoader
 import com.sksamuel.hoplite.PropertySource
+import dev.binclub.binscure.ObfuscationContext
 import dev.binclub.binscure.api.RootConfiguration
 import java.io.File
 
@@ -9,7 +10,19 @@ import java.io.File
  * @author cookiedragon234 25/Jan/2020
  */
 object ConfigurationManager {
-	lateinit var rootConfig: RootConfiguration
+	private lateinit var globalConfig: RootConfiguration
+	
+	/**
+	 * The configuration of the source being obfuscated on this thread (see [ObfuscationContext]), otherwise the one
+	 * last set or parsed
+	 */
+	@JvmStatic
+	var rootConfig: RootConfiguration
+		get() = ObfuscationContext.currentOrNull()?.config ?: globalConfig
+		set(value) {
+			globalConfig = value
+		}
+	
 	fun parse(configFile: File): RootConfiguration {
 		val source = PropertySource.file(configFile)
 		rootConfig = ConfigLoader.Builder()
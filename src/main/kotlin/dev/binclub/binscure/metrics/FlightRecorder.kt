@@ -0,0 +1,73 @@
+package dev.binclub.binscure.metrics
+
+import org.objectweb.asm.tree.ClassNode
+
+/**
+ * Java Flight Recorder events for the obfuscation stages, enabled with `-Dbinscure.jfr`.
+ *
+ * `-Dbinscure.jfr=out.jfr` records the run (with the profile settings) to the given file, a bare `-Dbinscure.jfr`
+ * only emits the events for a recording started some other way (such as `-XX:StartFlightRecording`).
+ *
+ * Every `begin` returns null while disabled, so call sites cost a single branch. `jdk.jfr` is only ever touched
+ * through [JfrEvents] once enabled, so runtimes without it are unaffected.
+ *
+ * @author cook 18/Oct/2026
+ */
+object FlightRecorder {
+	private val property: String? = System.getProperty("binscure.jfr")
+	@JvmField val enabled = property != null
+	
+	fun start() {
+		if (enabled && property!!.isNotEmpty()) {
+			JfrEvents.startRecording()
+		}
+	}
+	
+	fun stop() {
+		if (enabled && property!!.isNotEmpty()) {
+			JfrEvents.stopRecording(property)
+			println("\rWrote flight recording to $property")
+		}
+	}
+	
+	fun beginProcessor(processor: String): Any? =
+		if (enabled) JfrEvents.beginProcessor(processor) else null
+	
+	fun endProcessor(event: Any?) {
+		if (event != null) JfrEvents.endProcessor(event)
+	}
+	
+	fun beginClass(processor: String, classNode: ClassNode): Any? =
+		if (enabled) JfrEvents.beginClass(processor, classNode.name, instructionCount(classNode)) else null
+	
+	fun endClass(event: Any?, classNode: ClassNode) {
+		if (event != null) JfrEvents.endClass(event, instructionCount(classNode))
+	}
+	
+	fun beginWriteClass(classNode: ClassNode, frames: Boolean): Any? =
+		if (enabled) JfrEvents.beginWriteClass(classNode.name, frames) else null
+	
+	/**
+	 * [fallback] is true if writing with frames failed and the class was written again without them, [size] is -1 if
+	 * the class could not be written at all
+	 */
+	fun endWriteClass(event: Any?, fallback: Boolean, size: Int) {
+		if (event != null) JfrEvents.endWriteClass(event, fallback, size)
+	}
+	
+	fun beginHierarchy(className: String): Any? =
+		if (enabled) JfrEvents.beginHierarchy(className) else null
+	
+	fun endHierarchy(event: Any?, found: Boolean) {
+		if (event != null) JfrEvents.endHierarchy(event, found)
+	}
+	
+	// Scheduled as a read of the members and code of the class, like the metrics (see ProcessorScheduler)
+	private fun instructionCount(classNode: ClassNode): Int {
+		var count = 0
+		for (method in classNode.methods) {
+			count += method.instructions?.size() ?: 0
+		}
+		return count
+	}
+}
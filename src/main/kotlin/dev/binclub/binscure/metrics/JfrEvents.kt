@@ -0,0 +1,130 @@
+package dev.binclub.binscure.metrics
+
+import jdk.jfr.*
+import java.nio.file.Paths
+
+/**
+ * The flight recorder events themselves, only loaded through [FlightRecorder] once enabled
+ *
+ * @author cook 18/Oct/2026
+ */
+internal object JfrEvents {
+	private var recording: Recording? = null
+	
+	fun startRecording() {
+		recording = Recording(Configuration.getConfiguration("profile")).also {
+			it.name = "binscure"
+			it.start()
+		}
+	}
+	
+	fun stopRecording(destination: String) {
+		recording?.let {
+			it.stop()
+			it.dump(Paths.get(destination))
+			it.close()
+		}
+		recording = null
+	}
+	
+	fun beginProcessor(processor: String): Any = ProcessorEvent().also {
+		it.processor = processor
+		it.begin()
+	}
+	
+	fun endProcessor(event: Any) {
+		(event as ProcessorEvent).commit()
+	}
+	
+	fun beginClass(processor: String, className: String, instructions: Int): Any = ClassEvent().also {
+		it.processor = processor
+		it.className = className
+		it.instructionDelta = -instructions
+		it.begin()
+	}
+	
+	fun endClass(event: Any, instructions: Int) {
+		(event as ClassEvent).let {
+			it.end()
+			it.instructionDelta += instructions
+			it.commit()
+		}
+	}
+	
+	fun beginWriteClass(className: String, frames: Boolean): Any = WriteClassEvent().also {
+		it.className = className
+		it.frames = frames
+		it.begin()
+	}
+	
+	fun endWriteClass(event: Any, fallback: Boolean, size: Int) {
+		(event as WriteClassEvent).let {
+			it.end()
+			it.fallback = fallback
+			it.size = size
+			it.commit()
+		}
+	}
+	
+	fun beginHierarchy(className: String): Any = HierarchyEvent().also {
+		it.className = className
+		it.begin()
+	}
+	
+	fun endHierarchy(event: Any, found: Boolean) {
+		(event as HierarchyEvent).let {
+			it.end()
+			it.found = found
+			it.commit()
+		}
+	}
+}
+
+@Name("dev.binclub.binscure.Processor")
+@Label("Processor")
+@Category("Binscure")
+@Description("A processor running over every class")
+internal class ProcessorEvent: Event() {
+	@Label("Processor")
+	@JvmField var processor: String? = null
+}
+
+@Name("dev.binclub.binscure.Class")
+@Label("Class Processed")
+@Category("Binscure")
+@Description("A class local processor running over a single class")
+internal class ClassEvent: Event() {
+	@Label("Processor")
+	@JvmField var processor: String? = null
+	@Label("Class")
+	@JvmField var className: String? = null
+	@Label("Instruction Delta")
+	@JvmField var instructionDelta: Int = 0
+}
+
+@Name("dev.binclub.binscure.WriteClass")
+@Label("Write Class")
+@Category("Binscure")
+@Description("Serializing a class, including frame computation")
+internal class WriteClassEvent: Event() {
+	@Label("Class")
+	@JvmField var className: String? = null
+	@Label("Compute Frames")
+	@JvmField var frames: Boolean = false
+	@Label("Fallback Without Frames")
+	@JvmField var fallback: Boolean = false
+	@Label("Size")
+	@DataAmount
+	@JvmField var size: Int = 0
+}
+
+@Name("dev.binclub.binscure.Hierarchy")
+@Label("Hierarchy Lookup")
+@Category("Binscure")
+@Description("Building the hierarchy of a class that was not cached yet")
+internal class HierarchyEvent: Event() {
+	@Label("Class")
+	@JvmField var className: String? = null
+	@Label("Found")
+	@JvmField var found: Boolean = false
+}
@@ -0,0 +1,65 @@
+package dev.binclub.binscure.metrics
+
+import java.io.File
+import java.io.PrintWriter
+
+/**
+ * The stages of obfuscating a single source, written as a JSON report next to its output
+ *
+ * @author cook 18/Oct/2026
+ */
+class ObfuscationMetrics(val input: File, val output: File, val threads: Int) {
+	private val stages = LinkedHashMap<String, StageMetrics>()
+
+	@Synchronized
+	fun stage(name: String): StageMetrics = stages.getOrPut(name) { StageMetrics(name) }
+
+	val reportFile: File
+		get() = File(output.absoluteFile.parentFile, "${output.nameWithoutExtension}-metrics.json")
+
+	@Synchronized
+	fun write(file: File = reportFile) {
+		PrintWriter(file.bufferedWriter()).use {
+			it.println("{")
+			it.println("\t\"input\": ${jsonString(input.path)},")
+			it.println("\t\"output\": ${jsonString(output.path)},")
+			it.println("\t\"threads\": $threads,")
+			it.println("\t\"stages\": [")
+			for ((i, stage) in stages.values.withIndex()) {
+				it.print("\t\t{")
+				it.print("\"name\": ${jsonString(stage.name)}")
+				it.print(", \"wallNanos\": ${stage.wallNanos}")
+				it.print(", \"cpuNanos\": ${stage.cpuNanos}")
+				it.print(", \"allocatedBytes\": ${stage.allocatedBytes}")
+				it.print(", \"classes\": ${stage.classes}")
+				it.print(", \"methods\": ${stage.methods}")
+				it.print(", \"instructions\": ${stage.instructions}")
+				it.print(", \"classesAdded\": ${stage.classesAdded}")
+				it.print(", \"methodsAdded\": ${stage.methodsAdded}")
+				it.print(", \"methodsRemoved\": ${stage.methodsRemoved}")
+				it.print(", \"instructionsAdded\": ${stage.instructionsAdded}")
+				it.print(", \"instructionsRemoved\": ${stage.instructionsRemoved}")
+				it.print(", \"bytes\": ${stage.bytes}")
+				it.print(", \"rolledBack\": ${stage.rolledBack}")
+				it.println(if (i < stages.size - 1) "}," else "}")
+			}
+			it.println("\t]")
+			it.println("}")
+		}
+	}
+
+	private fun jsonString(string: String): String {
+		val sb = StringBuilder(string.length + 2)
+		sb.append('"')
+		for (c in string) {
+			when {
+				c == '"' -> sb.append("\\\"")
+				c == '\\' -> sb.append("\\\\")
+				c < ' ' -> sb.append("\\u").append(c.code.toString(16).padStart(4, '0'))
+				else -> sb.append(c)
+			}
+		}
+		sb.append('"')
+		return sb.toString()
+	}
+}
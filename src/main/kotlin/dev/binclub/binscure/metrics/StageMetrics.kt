@@ -0,0 +1,134 @@
+package dev.binclub.binscure.metrics
+
+import org.objectweb.asm.tree.ClassNode
+import java.lang.management.ManagementFactory
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counters for a single stage of an obfuscation run (reading the input, a processor, writing the output).
+ * Stages running over several threads are measured on each of them, so all counters are safe to update concurrently
+ *
+ * @author cook 18/Oct/2026
+ */
+class StageMetrics(val name: String) {
+	val wallNanos = AtomicLong()
+	val cpuNanos = AtomicLong()
+	val allocatedBytes = AtomicLong()
+
+	val classes = AtomicLong()
+	val methods = AtomicLong()
+	val instructions = AtomicLong()
+
+	val classesAdded = AtomicLong()
+	val methodsAdded = AtomicLong()
+	val methodsRemoved = AtomicLong()
+	val instructionsAdded = AtomicLong()
+	val instructionsRemoved = AtomicLong()
+
+	val bytes = AtomicLong()
+	/** Methods put back by the [dev.binclub.binscure.ProcessorWatchdog] */
+	val rolledBack = AtomicLong()
+
+	/**
+	 * Records the classes, methods and instructions visited, and the net number added or removed in every class
+	 */
+	fun record(before: ClassCounts, after: ClassCounts) {
+		classes.addAndGet(before.size.toLong())
+		for (i in 0 until before.size) {
+			methods.addAndGet(before.methods[i].toLong())
+			instructions.addAndGet(before.instructions[i].toLong())
+
+			val methodDelta = after.methods[i] - before.methods[i]
+			if (methodDelta > 0) methodsAdded.addAndGet(methodDelta.toLong()) else methodsRemoved.addAndGet(-methodDelta.toLong())
+			val insnDelta = after.instructions[i] - before.instructions[i]
+			if (insnDelta > 0) instructionsAdded.addAndGet(insnDelta.toLong()) else instructionsRemoved.addAndGet(-insnDelta.toLong())
+		}
+	}
+
+	/**
+	 * Records classes that were only read or written, not modified
+	 */
+	fun record(counts: ClassCounts) {
+		classes.addAndGet(counts.size.toLong())
+		for (i in 0 until counts.size) {
+			methods.addAndGet(counts.methods[i].toLong())
+			instructions.addAndGet(counts.instructions[i].toLong())
+		}
+	}
+}
+
+/**
+ * The number of methods and instructions of every class in a list, at one point in time
+ */
+class ClassCounts(classes: List<ClassNode>) {
+	val size = classes.size
+	val methods = IntArray(size)
+	val instructions = IntArray(size)
+
+	init {
+		for ((i, classNode) in classes.withIndex()) {
+			methods[i] = classNode.methods.size
+			var count = 0
+			for (method in classNode.methods) {
+				count += method.instructions?.size() ?: 0
+			}
+			instructions[i] = count
+		}
+	}
+}
+
+private val threadBean = ManagementFactory.getThreadMXBean()
+private val allocationBean = threadBean as? com.sun.management.ThreadMXBean
+private val cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported && threadBean.isThreadCpuTimeEnabled
+
+fun threadCpuTime(): Long = if (cpuTimeSupported) threadBean.currentThreadCpuTime else 0L
+
+fun threadAllocatedBytes(): Long = allocationBean?.getThreadAllocatedBytes(Thread.currentThread().id) ?: 0L
+
+/**
+ * Measures the wall time of [block]
+ */
+inline fun <T> StageMetrics?.wall(block: () -> T): T {
+	if (this == null)
+		return block()
+
+	val start = System.nanoTime()
+	try {
+		return block()
+	} finally {
+		wallNanos.addAndGet(System.nanoTime() - start)
+	}
+}
+
+/**
+ * Measures the cpu time and allocations of [block] on the current thread
+ */
+inline fun <T> StageMetrics?.usage(block: () -> T): T {
+	if (this == null)
+		return block()
+
+	val cpu = threadCpuTime()
+	val allocated = threadAllocatedBytes()
+	try {
+		return block()
+	} finally {
+		cpuNanos.addAndGet(threadCpuTime() - cpu)
+		allocatedBytes.addAndGet(threadAllocatedBytes() - allocated)
+	}
+}
+
+/**
+ * Records the changes [block] makes to the methods and instructions of [classes]. Counting them reads the classes, so
+ * measured processors are scheduled as readers of their members and code (see [dev.binclub.binscure.ProcessorScheduler])
+ */
+inline fun <T> StageMetrics?.changes(classes: List<ClassNode>, block: () -> T): T {
+	if (this == null)
+		return block()
+
+	val before = ClassCounts(classes)
+	try {
+		return block()
+	} finally {
+		record(before, ClassCounts(classes))
+	}
+}
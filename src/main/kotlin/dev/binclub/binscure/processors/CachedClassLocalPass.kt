@@ -0,0 +1,192 @@
+package dev.binclub.binscure.processors
+
+import dev.binclub.binscure.CObfuscator
+import dev.binclub.binscure.ClassLocalTask
+import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.api.TransformerConfiguration
+import dev.binclub.binscure.classpath.ClassCache
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.classpath.OriginalFrames
+import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.processors.flow.MethodParameterObfuscator
+import org.objectweb.asm.tree.ClassNode
+import java.util.EnumSet
+
+/**
+ * Runs a run of adjacent class local processors over each class, or loads the result of a previous run from the
+ * [ClassCache] if the class went in the same.
+ *
+ * Each processor still processes the class with its own random stream, so a computed class is the same as one from an
+ * uncached pipeline. Computed classes are reloaded from the bytes that were cached, so that later processors see the
+ * same class whether it was computed or loaded. The original frames of reloaded methods are moved to their copies (see
+ * [OriginalFrames.rebind]), so they are still written as they were read if they are unchanged.
+ *
+ * @author cook 18/Oct/2026
+ */
+class CachedClassLocalPass(
+	source: ClassSources,
+	private val processors: List<IClassProcessor>,
+	private val cache: ClassCache
+): IClassProcessor(source) {
+	override val progressDescription: String = processors.joinToString(", ") { it.progressDescription }
+	override val name: String = processors.joinToString(" + ") { it.name }
+	override val config: TransformerConfiguration
+		get() = rootConfig
+	override val classLocal: Boolean = true
+	override val watched: Boolean = false
+	// Loading a class from the cache replaces all of it
+	override val reads: Set<ProcessorResource> = processors.flatMapTo(EnumSet.copyOf(ProcessorResource.CLASS_CONTENT)) { it.reads }
+	override val writes: Set<ProcessorResource> = processors.flatMapTo(EnumSet.copyOf(ProcessorResource.CLASS_CONTENT)) { it.writes }
+	private val usesRuntime = ProcessorResource.OPAQUE_RUNTIME in reads || ProcessorResource.OPAQUE_RUNTIME in writes
+
+	/**
+	 * The opaque runtime as it is, which processors generate the first time they need it. Only what has been generated
+	 * is fingerprinted, generating it here would add it to the output even if no class needs it
+	 */
+	private fun runtimeKey(): ByteArray {
+		val opaque = CObfuscator.opaqueRuntimeManager
+		val classNode = opaque.getClassNodeSafe() ?: return cache.key("no opaque runtime")
+		val parts = arrayListOf<Any?>(classNode.name)
+		opaque.getFieldsSafe()?.forEach { field ->
+			parts.add("${field.fieldNode.name}:${field.fieldNode.value}:${field.trueOpcode}:${field.falseOpcode}")
+		}
+		return cache.key(*parts.toTypedArray())
+	}
+
+	/**
+	 * How much of the opaque runtime has been generated: nothing, its class or its class and fields
+	 */
+	private fun runtimeLevel(): Byte {
+		val opaque = CObfuscator.opaqueRuntimeManager
+		return when {
+			opaque.getClassNodeSafe() == null -> 0
+			opaque.getFieldsSafe() == null -> 1
+			else -> 2
+		}
+	}
+
+	override fun process(
+		source: ClassSources,
+		classes: MutableCollection<ClassNode>,
+		passThrough: MutableMap<String, ByteArray>
+	) {
+		for (classNode in classes) {
+			processClass(classNode)
+		}
+	}
+
+	private fun processClass(classNode: ClassNode) {
+		val state = ClassCache.serialize(classNode)
+		if (state == null) {
+			compute(classNode)
+			return
+		}
+
+		val runtime = if (usesRuntime) runtimeKey() else null
+		val key = cache.key(name, runtime, classNode.originalName, classNode.verify, methodSecrets(classNode), state)
+		cache[key]?.let { entry ->
+			if (load(classNode, entry)) {
+				return
+			}
+		}
+
+		if (!compute(classNode))
+			return
+
+		val computed = ClassCache.serialize(classNode) ?: return
+		val verify = classNode.verify
+		// The opaque runtime the class was computed against, which it may refer to
+		val header = if (usesRuntime) {
+			byteArrayOf(if (verify) 1 else 0, runtimeLevel()) + runtimeKey()
+		} else {
+			byteArrayOf(if (verify) 1 else 0, 0)
+		}
+		if (reload(classNode, computed, verify)) {
+			cache[key] = header + computed
+		}
+	}
+
+	/**
+	 * Loads a cached [entry] into [classNode]. A class that refers to the opaque runtime is only loaded if the runtime
+	 * generated now is the one it was computed against, generating as much of it as the class was computed with
+	 */
+	private fun load(classNode: ClassNode, entry: ByteArray): Boolean {
+		var offset = 2
+		if (usesRuntime) {
+			val level = entry[1].toInt()
+			val opaque = CObfuscator.opaqueRuntimeManager
+			if (level >= 1) opaque.classNode
+			if (level >= 2) opaque.fields
+			val expected = entry.copyOfRange(offset, offset + KEY_SIZE)
+			offset += KEY_SIZE
+			if (level != 0 && !runtimeKey().contentEquals(expected))
+				return false
+		}
+		return reload(classNode, entry.copyOfRange(offset, entry.size), entry[0] != 0.toByte())
+	}
+
+	/**
+	 * Replaces [classNode] with [bytes], keeping the original frames of its methods
+	 */
+	private fun reload(classNode: ClassNode, bytes: ByteArray, verify: Boolean): Boolean {
+		val previous = ArrayList(classNode.methods)
+		if (!ClassCache.load(classNode, bytes, verify))
+			return false
+		OriginalFrames.rebind(classNode, previous, source.originalFrames)
+		return true
+	}
+
+	/**
+	 * Returns false if the watchdog stopped one of the processors, in which case the result depends on timing and is
+	 * not cached
+	 */
+	private fun compute(classNode: ClassNode): Boolean {
+		var complete = true
+		for (processor in processors) {
+			complete = ClassLocalTask.processClass(processor, source, classNode, null) && complete
+		}
+		return complete
+	}
+
+	/**
+	 * The secrets of this class's methods, which processors reading [ProcessorResource.METHOD_SECRETS] weave into the
+	 * method bodies
+	 */
+	private fun methodSecrets(classNode: ClassNode): String? {
+		if (ProcessorResource.METHOD_SECRETS !in reads)
+			return null
+
+		val methodParameter = CObfuscator.processor<MethodParameterObfuscator>()
+		return classNode.methods.joinToString(",") { method ->
+			methodParameter.methodSecrets[methodParameter.mnToStr(classNode, method)].toString()
+		}
+	}
+
+	companion object {
+		/** The size of a [ClassCache.key] */
+		private const val KEY_SIZE = 32
+
+		/**
+		 * Replaces every run of adjacent class local processors with a single cached pass
+		 */
+		fun wrap(source: ClassSources, processors: Array<IClassProcessor>, cache: ClassCache): Array<IClassProcessor> {
+			val out = ArrayList<IClassProcessor>(processors.size)
+			var i = 0
+			while (i < processors.size) {
+				var end = i
+				while (end < processors.size && processors[end].classLocal) {
+					end += 1
+				}
+				if (end > i) {
+					out.add(CachedClassLocalPass(source, processors.slice(i until end), cache))
+					i = end
+				} else {
+					out.add(processors[i])
+					i += 1
+				}
+			}
+			return out.toTypedArray()
+		}
+	}
+}
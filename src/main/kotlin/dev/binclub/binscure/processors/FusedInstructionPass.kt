@@ -0,0 +1,89 @@
+package dev.binclub.binscure.processors
+
+import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.api.TransformerConfiguration
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.processors.arithmetic.MbaTransformer
+import dev.binclub.binscure.processors.constants.NumberObfuscation
+import dev.binclub.binscure.processors.debug.KotlinMetadataStripper
+import dev.binclub.binscure.processors.renaming.impl.LocalVariableRenamer
+import org.objectweb.asm.tree.ClassNode
+import java.util.EnumSet
+
+/**
+ * Runs a run of adjacent [InstructionRewriter] processors together, walking each method once instead of once per
+ * processor
+ *
+ * @author cook 18/Oct/2026
+ */
+class FusedInstructionPass(source: ClassSources, private val processors: List<IClassProcessor>): IClassProcessor(source) {
+	override val progressDescription: String = processors.joinToString(", ") { it.progressDescription }
+	override val name: String = processors.joinToString(" + ") { it.name }
+	override val config: TransformerConfiguration
+		get() = rootConfig
+	override val classLocal: Boolean = processors.all { it.classLocal }
+	override val reads: Set<ProcessorResource> = processors.flatMapTo(EnumSet.noneOf(ProcessorResource::class.java)) { it.reads }
+	override val writes: Set<ProcessorResource> = processors.flatMapTo(EnumSet.noneOf(ProcessorResource::class.java)) { it.writes }
+
+	private val walker = InstructionWalker(processors.map { it as InstructionRewriter })
+
+	override fun process(
+		source: ClassSources,
+		classes: MutableCollection<ClassNode>,
+		passThrough: MutableMap<String, ByteArray>
+	) {
+		for (classNode in classes) {
+			walker.rewrite(classNode)
+		}
+	}
+
+	companion object {
+		/**
+		 * Moves [LocalVariableRenamer] next to [KotlinMetadataStripper] and [NumberObfuscation] next to
+		 * [MbaTransformer], so that they can be fused. This changes what they see: local variables are renamed before
+		 * the method parameter obfuscator runs, numbers are obfuscated after the static method merger and the
+		 * exploits (so the constants those emit are obfuscated too), and as the first round of MBA shares a walk with
+		 * number obfuscation it no longer sees its output, only the following rounds do
+		 */
+		fun adjacent(processors: Array<IClassProcessor>): Array<IClassProcessor> {
+			val out = processors.toMutableList()
+			fun move(moved: Class<*>, to: Class<*>, after: Boolean) {
+				val processor = out.firstOrNull { it.javaClass == moved } ?: return
+				out.remove(processor)
+				val at = out.indexOfFirst { it.javaClass == to }
+				if (at < 0) {
+					out.add(processor)
+				} else {
+					out.add(if (after) at + 1 else at, processor)
+				}
+			}
+			move(LocalVariableRenamer::class.java, KotlinMetadataStripper::class.java, true)
+			move(NumberObfuscation::class.java, MbaTransformer::class.java, false)
+			return out.toTypedArray()
+		}
+		
+		/**
+		 * Replaces every run of two or more adjacent instruction rewriters with a single fused pass
+		 */
+		fun fuse(source: ClassSources, processors: Array<IClassProcessor>): Array<IClassProcessor> {
+			val out = ArrayList<IClassProcessor>(processors.size)
+			var i = 0
+			while (i < processors.size) {
+				var end = i
+				while (end < processors.size && processors[end] is InstructionRewriter) {
+					end += 1
+				}
+				if (end - i >= 2) {
+					out.add(FusedInstructionPass(source, processors.slice(i until end)))
+					i = end
+				} else {
+					out.add(processors[i])
+					i += 1
+				}
+			}
+			return out.toTypedArray()
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package dev.binclub.binscure.processors
+
+import dev.binclub.binscure.ProcessorWatchdog
+import dev.binclub.binscure.utils.InstructionModifier
+import org.objectweb.asm.tree.AbstractInsnNode
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodNode
+
+/**
+ * A processor that only rewrites single instructions (or an instruction and a few of the ones following it).
+ * Rewriters are driven by an [InstructionWalker], which lets several of them share one walk over each method
+ *
+ * @author cook 18/Oct/2026
+ */
+interface InstructionRewriter {
+	/**
+	 * The opcodes of the instructions this rewriter wants to see. Instructions without an opcode (labels, line
+	 * numbers, frames) are keyed as [NO_OPCODE] + [AbstractInsnNode.getType]
+	 */
+	val rewrittenOpcodes: IntArray
+
+	/**
+	 * Called once per class before any of its methods, returns false to leave the class alone
+	 */
+	fun rewriteClass(classNode: ClassNode): Boolean
+
+	/**
+	 * Returns the rewriter for a single method, or null to leave the method alone
+	 */
+	fun rewriter(classNode: ClassNode, method: MethodNode): MethodRewriter?
+
+	interface MethodRewriter {
+		/**
+		 * Returns [UNHANDLED] to pass the instruction on to the next rewriter, otherwise the number of instructions
+		 * following [insn] that were consumed as well. Handled and consumed instructions are not shown to any other
+		 * rewriter
+		 */
+		fun rewrite(insn: AbstractInsnNode, modifier: InstructionModifier): Int
+
+		/**
+		 * Called once the modifications of the walk have been applied
+		 */
+		fun finish() {}
+	}
+
+	companion object {
+		const val UNHANDLED = -1
+		const val NO_OPCODE = 256
+
+		fun key(insn: AbstractInsnNode): Int = if (insn.opcode >= 0) insn.opcode else NO_OPCODE + insn.type
+	}
+}
+
+/**
+ * Walks every method of a class once, dispatching each instruction by opcode to the interested rewriters in order
+ */
+class InstructionWalker(private val rewriters: List<InstructionRewriter>) {
+	private val dispatch = arrayOfNulls<IntArray>(InstructionRewriter.NO_OPCODE + 16).also { dispatch ->
+		for ((i, rewriter) in rewriters.withIndex()) {
+			for (opcode in rewriter.rewrittenOpcodes) {
+				dispatch[opcode] = (dispatch[opcode] ?: IntArray(0)) + i
+			}
+		}
+	}
+
+	fun rewrite(classNode: ClassNode) {
+		val active = BooleanArray(rewriters.size) { rewriters[it].rewriteClass(classNode) }
+		if (!active.any { it })
+			return
+
+		val methodRewriters = arrayOfNulls<InstructionRewriter.MethodRewriter>(rewriters.size)
+		for (method in classNode.methods) {
+			ProcessorWatchdog.check()
+			val instructions = method.instructions ?: continue
+
+			var any = false
+			for (i in rewriters.indices) {
+				methodRewriters[i] = if (active[i]) rewriters[i].rewriter(classNode, method) else null
+				any = any || methodRewriters[i] != null
+			}
+			if (!any)
+				continue
+
+			val modifier = InstructionModifier()
+			var skip = 0
+			for (insn in instructions) {
+				if (skip > 0) {
+					skip -= 1
+					continue
+				}
+				val handlers = dispatch[InstructionRewriter.key(insn)] ?: continue
+				for (i in handlers) {
+					val consumed = methodRewriters[i]?.rewrite(insn, modifier) ?: continue
+					if (consumed != InstructionRewriter.UNHANDLED) {
+						skip = consumed
+						break
+					}
+				}
+			}
+
+			modifier.apply(instructions)
+			for (methodRewriter in methodRewriters) {
+				methodRewriter?.finish()
+			}
+		}
+	}
+}
@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.arithmetic
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.forClass
@@ -11,6 +13,7 @@ import dev.binclub.binscure.utils.insnBuilder
 import dev.binclub.binscure.utils.randomBranch
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.ClassNode
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 02/Aug/2020
@@ -19,6 +22,11 @@ class ArithmeticSubstitutionTransformer(source: ClassSources): IClassProcessor(s
 	override val progressDescription: String
 		get() = "Substituting arithmetic operations"
 	override val config = rootConfig.flowObfuscation
+	// Deprecated in favour of MBA transformer
+	override val enabled: Boolean
+		get() = false
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CODE)
 	
 	override fun process(
 		source: ClassSources,
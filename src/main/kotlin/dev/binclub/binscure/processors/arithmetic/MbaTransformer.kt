@@ -1,19 +1,27 @@
 package dev.binclub.binscure.processors.arithmetic
 
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
+import dev.binclub.binscure.ProcessorWatchdog
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
-import dev.binclub.binscure.forClass
-import dev.binclub.binscure.forMethod
+import dev.binclub.binscure.processors.InstructionRewriter
+import dev.binclub.binscure.processors.InstructionRewriter.Companion.UNHANDLED
+import dev.binclub.binscure.processors.InstructionRewriter.MethodRewriter
+import dev.binclub.binscure.processors.InstructionWalker
 import dev.binclub.binscure.utils.InstructionModifier
 import dev.binclub.binscure.utils.insnBuilder
 import dev.binclub.binscure.utils.randomBranch
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.AbstractInsnNode
 import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.MethodNode
 import java.lang.NullPointerException
 
+import kotlin.math.max
 import kotlin.math.roundToInt
+import java.util.EnumSet
 
 /**
  * Mixed boolean arithmetic is the process of converting a classical arithmetic operation (e.g. add, sub, mul...) into
@@ -25,13 +33,19 @@ import kotlin.math.roundToInt
  *
  * @author cook 09/Oct/2020
  */
-class MbaTransformer(source: ClassSources): IClassProcessor(source) {
+class MbaTransformer(source: ClassSources): IClassProcessor(source), InstructionRewriter {
 	override val progressDescription: String = "Applying mixed boolean arithmetic"
 	override val config = rootConfig.arithmetic
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CODE)
 	
 	private val maxMethodSize = 65535
 	// about 2 bytes per instruction so make conservative estimate
 	private val maxInsns = (maxMethodSize / 3.5).roundToInt()
+	override val rewrittenOpcodes: IntArray = intArrayOf(ICONST_M1, INEG, IADD, ISUB, IXOR, IOR, IAND)
+	private val walker by lazy { InstructionWalker(listOf(this)) }
 	
 	override fun process(
 		source: ClassSources,
@@ -40,26 +54,52 @@ class MbaTransformer(source: ClassSources): IClassProcessor(source) {
 	) {
 		if (!config.enabled) return
 		
-		forClass(classes) { cn ->
-			forMethod(cn) { mn ->
+		for (classNode in classes) {
+			walker.rewrite(classNode)
+		}
+	}
+	
+	override fun rewriteClass(classNode: ClassNode): Boolean = config.enabled && !isExcluded(classNode)
+	
+	/**
+	 * The first round of substitutions is done as part of the walk, the following rounds (which substitute the
+	 * substitutions) need a walk of their own
+	 */
+	override fun rewriter(classNode: ClassNode, method: MethodNode): MethodRewriter? {
+		if (isExcluded(classNode, method) || config.repeat <= 0)
+			return null
+		val list = method.instructions
+		if (list == null || list.size() <= 0)
+			return null
+		
+		return object: MethodRewriter {
+			var changed = false
+			
+			override fun rewrite(insn: AbstractInsnNode, modifier: InstructionModifier): Int =
+				substitute(insn, modifier).also {
+					if (it != UNHANDLED) changed = true
+				}
+			
+			override fun finish() {
+				if (!changed)
+					return
+				
 				try {
-					val list = mn.instructions
-					if (list != null && list.size() > 0) {
-						for (i in 0 until config.repeat) {
-							val modifier = InstructionModifier()
-							var skip = 0
-							for (op in list) {
-								if (skip > 0) {
-									skip -= 1
-									continue
-								}
-								skip += substitute(op, modifier)
-							}
-							if (modifier.isEmpty()) break
-							if (!modifier.apply(list)) {
-								println("\rWarning: Stopped MBA for method ${cn.getNiceName()}.${mn.name}${mn.desc} ($maxInsns instructions)")
-								break
+					for (i in 1 until config.repeat) {
+						ProcessorWatchdog.check()
+						val modifier = InstructionModifier()
+						var skip = 0
+						for (op in list) {
+							if (skip > 0) {
+								skip -= 1
+								continue
 							}
+							skip = max(substitute(op, modifier), 0)
+						}
+						if (modifier.isEmpty()) break
+						if (!modifier.apply(list)) {
+							println("\rWarning: Stopped MBA for method ${classNode.getNiceName()}.${method.name}${method.desc} ($maxInsns instructions)")
+							break
 						}
 					}
 				} catch (n: NullPointerException) {
@@ -332,6 +372,7 @@ class MbaTransformer(source: ClassSources): IClassProcessor(source) {
 					isub()
 				})
 			}
+			else -> return UNHANDLED
 		}
 		return skip
 	}
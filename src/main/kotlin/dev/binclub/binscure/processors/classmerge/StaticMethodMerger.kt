@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.classmerge
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.api.transformers.FlowObfuscationConfiguration
 import dev.binclub.binscure.api.transformers.MergeMethods.NONE
 import dev.binclub.binscure.classpath.ClassSources
@@ -15,6 +17,7 @@ import org.objectweb.asm.Type
 import org.objectweb.asm.Type.getArgumentTypes
 import org.objectweb.asm.Type.getReturnType
 import org.objectweb.asm.tree.*
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 21/Feb/2020
@@ -43,6 +46,10 @@ class StaticMethodMerger(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Merging methods"
 	override val config: FlowObfuscationConfiguration = rootConfig.flowObfuscation
+	override val enabled: Boolean
+		get() = config.enabled && config.mergeMethods != NONE
+	override val reads: Set<ProcessorResource> = EnumSet.of(CLASS_SET, MEMBERS, CODE, ACCESS, DEBUG_INFO, ATTRIBUTES, HIERARCHY)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, MEMBERS, CODE, DEBUG_INFO)
 	
 	val OBJECT_TYPE = Type.getType("Ljava/lang/Object;")
 	
@@ -91,7 +98,7 @@ class StaticMethodMerger(source: ClassSources): IClassProcessor(source) {
 						methDesc.getReturnType(),
 						*descParams
 					)
-					staticMethods.getOrPut(downcastedDesc.getDescriptor(), { hashSetOf() }).add(Pair(classNode, method))
+					staticMethods.getOrPut(downcastedDesc.getDescriptor(), { linkedSetOf() }).add(Pair(classNode, method))
 				}
 			}
 		}
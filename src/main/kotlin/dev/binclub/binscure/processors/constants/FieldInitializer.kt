@@ -1,6 +1,8 @@
 package dev.binclub.binscure.processors.constants
 
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.api.TransformerConfiguration
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
@@ -8,6 +10,7 @@ import dev.binclub.binscure.utils.*
 import org.objectweb.asm.Opcodes
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.*
+import java.util.EnumSet
 
 /**
  * This transformer removes the default values from fields and instead assigns their value inside the static initializer
@@ -33,6 +36,10 @@ class FieldInitializer(source: ClassSources): IClassProcessor(source) {
 		get() = "Moving field constants to the static initializer"
 	override val config: TransformerConfiguration
 		get() = rootConfig
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ACCESS, ATTRIBUTES, HIERARCHY)
+	override val writes: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE)
 	
 	override fun process(
 		source: ClassSources,
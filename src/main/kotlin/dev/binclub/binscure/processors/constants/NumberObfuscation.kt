@@ -1,9 +1,15 @@
 package dev.binclub.binscure.processors.constants
 
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.api.transformers.NumberObfuscationConfiguration
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
+import dev.binclub.binscure.processors.InstructionRewriter
+import dev.binclub.binscure.processors.InstructionRewriter.Companion.UNHANDLED
+import dev.binclub.binscure.processors.InstructionRewriter.MethodRewriter
+import dev.binclub.binscure.processors.InstructionWalker
 import dev.binclub.binscure.utils.add
 import dev.binclub.binscure.utils.internalName
 import dev.binclub.binscure.utils.*
@@ -12,15 +18,24 @@ import org.objectweb.asm.tree.AbstractInsnNode
 import org.objectweb.asm.tree.ClassNode
 import org.objectweb.asm.tree.InsnList
 import org.objectweb.asm.tree.MethodInsnNode
+import org.objectweb.asm.tree.MethodNode
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 30/Jan/2020
  */
-class NumberObfuscation(source: ClassSources): IClassProcessor(source) {
+class NumberObfuscation(source: ClassSources): IClassProcessor(source), InstructionRewriter {
 	override val progressDescription: String
 		get() = "Obfuscating number constants"
 	override val config: NumberObfuscationConfiguration
 		get() = rootConfig.numberObfuscation
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CODE)
+	
+	override val rewrittenOpcodes: IntArray = numOps.keys.toIntArray() + LDC
+	private val walker by lazy { InstructionWalker(listOf(this)) }
 	
 	override fun process(
 		source: ClassSources,
@@ -31,33 +46,32 @@ class NumberObfuscation(source: ClassSources): IClassProcessor(source) {
 			return
 		
 		for (classNode in classes) {
-			if (isExcluded(classNode))
-				continue
+			walker.rewrite(classNode)
+		}
+	}
+	
+	override fun rewriteClass(classNode: ClassNode): Boolean = config.enabled && !isExcluded(classNode)
+	
+	override fun rewriter(classNode: ClassNode, method: MethodNode): MethodRewriter? =
+		if (isExcluded(classNode, method)) null else methodRewriter
+	
+	private val methodRewriter = object: MethodRewriter {
+		override fun rewrite(insn: AbstractInsnNode, modifier: InstructionModifier): Int {
+			if (!isNumberLdc(insn))
+				return UNHANDLED
 			
-			for (method in classNode.methods) {
-				if (isExcluded(classNode, method) || method.instructions == null)
-					continue
-				
-				val modifier = InstructionModifier()
-				for (insn in method.instructions) {
-					if (isNumberLdc(insn)) {
-						when (val num = getNumFromLdc(insn)) {
-							is Int -> obfInt(modifier, insn, num)
-							is Long -> obfLong(modifier, insn, num)
-							is Double -> obfDouble(modifier, insn, num)
-							is Float -> obfFloat(modifier, insn, num)
-						}
-					}
-				}
-				modifier.apply(method)
+			when (val num = getNumFromLdc(insn)) {
+				is Int -> obfInt(modifier, insn, num)
+				is Long -> obfLong(modifier, insn, num)
+				is Double -> if (config.floatingPoint) obfDouble(modifier, insn, num) else return UNHANDLED
+				is Float -> if (config.floatingPoint) obfFloat(modifier, insn, num) else return UNHANDLED
+				else -> return UNHANDLED
 			}
+			return 0
 		}
 	}
 	
 	private fun obfFloat(modifier: InstructionModifier, insn: AbstractInsnNode, num: Float) {
-		if (!config.floatingPoint)
-			return
-		
 		val firstRand = random.nextFloat() * Float.MAX_VALUE
 		val numAsInt = java.lang.Float.floatToIntBits(num)
 		val randAsInt = java.lang.Float.floatToIntBits(firstRand)
@@ -78,9 +92,6 @@ class NumberObfuscation(source: ClassSources): IClassProcessor(source) {
 	}
 	
 	private fun obfDouble(modifier: InstructionModifier, insn: AbstractInsnNode, num: Double) {
-		if (!config.floatingPoint)
-			return
-		
 		val firstRand = random.nextDouble() * Double.MAX_VALUE
 		val numAsLong = java.lang.Double.doubleToLongBits(num)
 		val randAsLong = java.lang.Double.doubleToLongBits(firstRand)
@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.constants.string
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.api.transformers.StringObfuscationConfiguration
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
@@ -31,6 +33,8 @@ class StringObfuscator(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Obfuscating string constants"
 	override val config: StringObfuscationConfiguration = rootConfig.stringObfuscation
+	override val reads: Set<ProcessorResource> = EnumSet.of(CLASS_SET, MEMBERS, CODE, ACCESS, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, MEMBERS, CODE, ATTRIBUTES, OPAQUE_RUNTIME, PASS_THROUGH)
 	
 	override fun process(
 		source: ClassSources,
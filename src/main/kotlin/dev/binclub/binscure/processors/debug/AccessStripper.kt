@@ -1,6 +1,7 @@
 package dev.binclub.binscure.processors.debug
 
 import dev.binclub.binscure.*
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.api.TransformerConfiguration
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
@@ -9,6 +10,7 @@ import dev.binclub.binscure.utils.hasAccess
 import dev.binclub.binscure.utils.removeAccess
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.ClassNode
+import java.util.EnumSet
 
 /**
  * This transformer removes all unecessary access flags, such as private, protected, final, etc
@@ -20,6 +22,10 @@ class AccessStripper(source: ClassSources): IClassProcessor(source) {
 		get() = "Stripping access flags"
 	override val config: TransformerConfiguration
 		get() = rootConfig
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, ACCESS, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(ACCESS)
 	
 	override fun process(
 		source: ClassSources,
@@ -1,27 +1,40 @@
 package dev.binclub.binscure.processors.debug
 
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.api.TransformerConfiguration
 import dev.binclub.binscure.api.transformers.KotlinMetadataType
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
-import dev.binclub.binscure.forClass
-import dev.binclub.binscure.forMethod
+import dev.binclub.binscure.processors.InstructionRewriter
+import dev.binclub.binscure.processors.InstructionRewriter.Companion.UNHANDLED
+import dev.binclub.binscure.processors.InstructionRewriter.MethodRewriter
+import dev.binclub.binscure.processors.InstructionWalker
 import dev.binclub.binscure.utils.InstructionModifier
 import dev.binclub.binscure.utils.insnBuilder
+import org.objectweb.asm.Opcodes.INVOKESTATIC
 import org.objectweb.asm.Opcodes.POP
 import org.objectweb.asm.tree.*
+import java.util.EnumSet
 
 /**
  * This transformer removes metadata emitted by the kotlin compiler
  *
  * @author cookiedragon234 22/Jan/2020
  */
-class KotlinMetadataStripper(source: ClassSources): IClassProcessor(source) {
+class KotlinMetadataStripper(source: ClassSources): IClassProcessor(source), InstructionRewriter {
 	override val progressDescription: String
 		get() = "Stripping kotlin metadata"
 	override val config: TransformerConfiguration
 		get() = rootConfig.kotlinMetadata
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CODE, ATTRIBUTES)
+	
+	override val rewrittenOpcodes: IntArray = intArrayOf(INVOKESTATIC)
+	private val walker by lazy { InstructionWalker(listOf(this)) }
 	
 	override fun process(
 		source: ClassSources,
@@ -31,58 +44,69 @@ class KotlinMetadataStripper(source: ClassSources): IClassProcessor(source) {
 		if (!config.enabled)
 			return
 		
-		val remove = rootConfig.kotlinMetadata.type == KotlinMetadataType.REMOVE
-		
+		for (classNode in classes) {
+			walker.rewrite(classNode)
+		}
+	}
+	
+	override fun rewriteClass(classNode: ClassNode): Boolean {
+		if (!config.enabled || isExcluded(classNode))
+			return false
 		
-		forClass(classes) { classNode ->
-			classNode.visibleAnnotations?.listIterator()?.also { it ->
-				it.forEach { annotation ->
-					if (annotation.desc == "Lkotlin/Metadata;" || annotation.desc == "Lkotlin/coroutines/jvm/internal/DebugMetadata;") {
-						it.remove()
-					}
+		classNode.visibleAnnotations?.listIterator()?.also { it ->
+			it.forEach { annotation ->
+				if (annotation.desc == "Lkotlin/Metadata;" || annotation.desc == "Lkotlin/coroutines/jvm/internal/DebugMetadata;") {
+					it.remove()
 				}
 			}
+		}
+		return true
+	}
+	
+	override fun rewriter(classNode: ClassNode, method: MethodNode): MethodRewriter? =
+		if (isExcluded(classNode, method)) null else intrinsicsStripper
+	
+	private val intrinsicsStripper = object: MethodRewriter {
+		override fun rewrite(insn: AbstractInsnNode, modifier: InstructionModifier): Int {
+			if (insn !is MethodInsnNode || insn.owner != "kotlin/jvm/internal/Intrinsics")
+				return UNHANDLED
 			
-			forMethod(classNode) { method ->
-				val modifier = InstructionModifier()
-				for (insn in method.instructions) {
-					if (insn is MethodInsnNode && insn.owner == "kotlin/jvm/internal/Intrinsics") {
-						if (insn.name == "checkParameterIsNotNull") {
-							if (insn.desc == "(Ljava/lang/Object;Ljava/lang/String;)V") {
-								val prev = insn.previous
-								if (prev is LdcInsnNode) {
-									if (remove) {
-										modifier.remove(prev)
-										modifier.replace(insn, InsnNode(POP))
-									} else {
-										prev.cst = "."
-									}
-								} else if (remove) {
-									modifier.replace(insn, insnBuilder {
-										pop()
-										pop()
-									})
-								}
-							} else if (remove) {
-								modifier.replace(insn, insnBuilder {
-									pop()
-								})
-							}
-						} else if (insn.name == "checkExpressionValueIsNotNull") {
-							val prev = insn.previous
-							if (prev is LdcInsnNode) {
-								if (remove) {
-									modifier.remove(prev)
-									modifier.replace(insn, InsnNode(POP))
-								} else {
-									prev.cst = "."
-								}
-							}
+			val remove = rootConfig.kotlinMetadata.type == KotlinMetadataType.REMOVE
+			if (insn.name == "checkParameterIsNotNull") {
+				if (insn.desc == "(Ljava/lang/Object;Ljava/lang/String;)V") {
+					val prev = insn.previous
+					if (prev is LdcInsnNode) {
+						if (remove) {
+							modifier.remove(prev)
+							modifier.replace(insn, InsnNode(POP))
+						} else {
+							prev.cst = "."
 						}
+					} else if (remove) {
+						modifier.replace(insn, insnBuilder {
+							pop()
+							pop()
+						})
+					}
+				} else if (remove) {
+					modifier.replace(insn, insnBuilder {
+						pop()
+					})
+				}
+			} else if (insn.name == "checkExpressionValueIsNotNull") {
+				val prev = insn.previous
+				if (prev is LdcInsnNode) {
+					if (remove) {
+						modifier.remove(prev)
+						modifier.replace(insn, InsnNode(POP))
+					} else {
+						prev.cst = "."
 					}
 				}
-				modifier.apply(method)
+			} else {
+				return UNHANDLED
 			}
+			return 0
 		}
 	}
 	
@@ -1,24 +1,39 @@
 package dev.binclub.binscure.processors.debug
 
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.api.transformers.LineNumberAction.*
 import dev.binclub.binscure.classpath.ClassSources
-import dev.binclub.binscure.forClass
-import dev.binclub.binscure.forMethod
+import dev.binclub.binscure.processors.InstructionRewriter
+import dev.binclub.binscure.processors.InstructionRewriter.Companion.NO_OPCODE
+import dev.binclub.binscure.processors.InstructionRewriter.MethodRewriter
+import dev.binclub.binscure.processors.InstructionWalker
 import dev.binclub.binscure.utils.InstructionModifier
+import org.objectweb.asm.tree.AbstractInsnNode
 import org.objectweb.asm.tree.ClassNode
-import org.objectweb.asm.tree.LineNumberNode
+import org.objectweb.asm.tree.MethodNode
+import java.util.EnumSet
 
 /**
  * This transformer removes unecessary debugging information typically emitted by javac from class file
  *
  * @author cookiedragon234 22/Jan/2020
  */
-class SourceStripper(source: ClassSources): IClassProcessor(source) {
+class SourceStripper(source: ClassSources): IClassProcessor(source), InstructionRewriter {
 	override val progressDescription: String
 		get() = "Stripping source debug data"
 	override val config = rootConfig.sourceStrip
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CODE, DEBUG_INFO, ATTRIBUTES)
+	override val keepsInputConstants: Boolean
+		get() = false
+	
+	override val rewrittenOpcodes: IntArray = intArrayOf(NO_OPCODE + AbstractInsnNode.LINE)
+	private val walker by lazy { InstructionWalker(listOf(this)) }
 	
 	override fun process(
 		source: ClassSources,
@@ -28,28 +43,35 @@ class SourceStripper(source: ClassSources): IClassProcessor(source) {
 		if (!config.enabled)
 			return
 		
-		val action = config.lineNumbers
+		for (classNode in classes) {
+			walker.rewrite(classNode)
+		}
+	}
+	
+	override fun rewriteClass(classNode: ClassNode): Boolean {
+		if (!config.enabled || isExcluded(classNode))
+			return false
 		
-		forClass(classes) { classNode ->
-			classNode.sourceDebug = null
-			classNode.sourceFile = null
-			classNode.signature = null
-			classNode.innerClasses?.clear()
-			
-			forMethod(classNode) { method ->
-				if (action != KEEP) {
-					val modifier = InstructionModifier()
-					for (insn in method.instructions) {
-						if (insn is LineNumberNode && action == REMOVE) {
-							modifier.remove(insn)
-						}
-					}
-					modifier.apply(method)
-				}
-				
-				method.exceptions = null
-				method.signature = null
-			}
+		classNode.sourceDebug = null
+		classNode.sourceFile = null
+		classNode.signature = null
+		classNode.innerClasses?.clear()
+		return true
+	}
+	
+	override fun rewriter(classNode: ClassNode, method: MethodNode): MethodRewriter? {
+		if (isExcluded(classNode, method))
+			return null
+		
+		method.exceptions = null
+		method.signature = null
+		return if (config.lineNumbers == REMOVE) lineNumberRemover else null
+	}
+	
+	private val lineNumberRemover = object: MethodRewriter {
+		override fun rewrite(insn: AbstractInsnNode, modifier: InstructionModifier): Int {
+			modifier.remove(insn)
+			return 0
 		}
 	}
 }
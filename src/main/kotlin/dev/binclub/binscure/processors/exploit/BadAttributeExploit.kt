@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.exploit
 
 import dev.binclub.binscure.CObfuscator.random
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.utils.versionAtLeast
@@ -11,6 +13,7 @@ import org.objectweb.asm.tree.ClassNode
 import java.io.ByteArrayOutputStream
 import java.io.DataOutputStream
 import java.util.Arrays
+import java.util.EnumSet
 
 /**
  * While the JVM will ignore an attribute in a classfile whos version is < the specification version that first defined
@@ -23,6 +26,10 @@ class BadAttributeExploit(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Exploiting class file parsers"
 	override val config = rootConfig.crasher
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(ATTRIBUTES)
 	
 	private val BOOTSTRAP_METHODS = DummyAttribute("BootstrapMethods")
 	private val MODULE_MAIN_CLASS = DummyAttribute("ModuleMainClass")
@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.exploit
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.processors.flow.MethodParameterObfuscator
@@ -17,6 +19,7 @@ import org.objectweb.asm.tree.ClassNode
 import org.objectweb.asm.tree.InsnList
 import org.objectweb.asm.tree.InvokeDynamicInsnNode
 import org.objectweb.asm.tree.TryCatchBlockNode
+import java.util.EnumSet
 
 /**
  * By adding an invokedynamic insn to a non existent bootstrap method we can crash procyon and similar bytecode parsers
@@ -28,6 +31,10 @@ class BadIndyConstant(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Exploiting invoke dynamics"
 	override val config = rootConfig.crasher
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ATTRIBUTES, METHOD_SECRETS)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, CODE, OPAQUE_RUNTIME)
 	
 	override fun process(
 		source: ClassSources,
@@ -2,6 +2,9 @@ package dev.binclub.binscure.processors.flow
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
+import dev.binclub.binscure.ProcessorWatchdog
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.utils.add
@@ -10,6 +13,7 @@ import dev.binclub.binscure.processors.runtime.opaqueSwitchJump
 import dev.binclub.binscure.utils.*
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.*
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 27/Feb/2020
@@ -18,6 +22,10 @@ class CfgFucker(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Obfuscating method flow"
 	override val config = rootConfig.flowObfuscation
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ACCESS, ATTRIBUTES, METHOD_SECRETS)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, CODE, OPAQUE_RUNTIME)
 	
 	override fun process(
 		source: ClassSources,
@@ -36,11 +44,12 @@ class CfgFucker(source: ClassSources): IClassProcessor(source) {
 				continue
 			
 			for (method in classNode.methods) {
+				ProcessorWatchdog.check()
 				if (method.instructions.size() < 5 || isExcluded(classNode, method))
 					continue
 				
 				val modifier = InstructionModifier()
-				val endings = hashSetOf<InsnList>()
+				val endings = arrayListOf<InsnList>()
 				
 				for (insn in method.instructions) {
 					if (
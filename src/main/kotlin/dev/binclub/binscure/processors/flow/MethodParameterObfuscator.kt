@@ -4,6 +4,8 @@ package dev.binclub.binscure.processors.flow
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.forClass
@@ -22,6 +24,8 @@ import java.util.*
 class MethodParameterObfuscator (source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String = "Obfuscating method parameters"
 	override val config = rootConfig.methodParameter
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ACCESS, DEBUG_INFO, ATTRIBUTES, HIERARCHY, METHOD_SECRETS)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, MEMBERS, CODE, ACCESS, DEBUG_INFO, METHOD_SECRETS)
 	
 	val META_FACTORY = Handle(
 		H_INVOKESTATIC,
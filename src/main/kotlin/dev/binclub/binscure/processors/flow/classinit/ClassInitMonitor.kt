@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.flow.classinit
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.processors.flow.MethodParameterObfuscator
@@ -10,6 +12,7 @@ import dev.binclub.binscure.utils.InstructionModifier
 import dev.binclub.binscure.utils.newLabel
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.*
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 10/Feb/2020
@@ -18,6 +21,10 @@ class ClassInitMonitor(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Obfuscating class instance creation"
 	override val config = rootConfig.flowObfuscation
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ATTRIBUTES, METHOD_SECRETS)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, MEMBERS, CODE, OPAQUE_RUNTIME)
 	
 	override fun process(
 		source: ClassSources,
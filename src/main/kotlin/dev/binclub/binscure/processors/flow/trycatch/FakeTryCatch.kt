@@ -2,6 +2,9 @@ package dev.binclub.binscure.processors.flow.trycatch
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
+import dev.binclub.binscure.ProcessorWatchdog
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.processors.flow.MethodParameterObfuscator
@@ -11,6 +14,7 @@ import dev.binclub.binscure.utils.newLabel
 import dev.binclub.binscure.utils.randomThrowable
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.*
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 27/Jan/2020
@@ -19,6 +23,10 @@ class FakeTryCatch(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Adding fake try catch blocks"
 	override val config = rootConfig.flowObfuscation
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ACCESS, ATTRIBUTES, METHOD_SECRETS)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, CODE, OPAQUE_RUNTIME)
 	
 	override fun process(
 		source: ClassSources,
@@ -34,6 +42,7 @@ class FakeTryCatch(source: ClassSources): IClassProcessor(source) {
 		for (classNode in classes) {
 			if (!isExcluded(classNode)) {
 				for (method in classNode.methods) {
+					ProcessorWatchdog.check()
 					if (method.name.startsWith('<') || isExcluded(classNode, method) || CObfuscator.noMethodInsns(method))
 						continue
 					
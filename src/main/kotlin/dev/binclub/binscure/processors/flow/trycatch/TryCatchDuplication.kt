@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.flow.trycatch
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.forClass
@@ -19,6 +21,10 @@ import java.util.*
 class TryCatchDuplication(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String = "Inserting interlocking try catch blocks"
 	override val config = rootConfig.flowObfuscation
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, DEBUG_INFO, ATTRIBUTES, HIERARCHY, METHOD_SECRETS)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, CODE, DEBUG_INFO, HIERARCHY, OPAQUE_RUNTIME)
 	
 	override fun process(
 		source: ClassSources,
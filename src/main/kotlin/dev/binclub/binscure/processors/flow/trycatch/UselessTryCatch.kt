@@ -2,6 +2,9 @@ package dev.binclub.binscure.processors.flow.trycatch
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
+import dev.binclub.binscure.ProcessorWatchdog
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.utils.random
@@ -10,6 +13,7 @@ import dev.binclub.binscure.utils.newLabel
 import dev.binclub.binscure.utils.randomThrowable
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.*
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 31/Jan/2020
@@ -18,6 +22,10 @@ class UselessTryCatch(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Adding fake try catches"
 	override val config = rootConfig.flowObfuscation
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ACCESS, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CODE)
 	
 	override fun process(
 		source: ClassSources,
@@ -33,6 +41,7 @@ class UselessTryCatch(source: ClassSources): IClassProcessor(source) {
 				continue
 			
 			for (method in classNode.methods) {
+				ProcessorWatchdog.check()
 				if (isExcluded(classNode, method) || CObfuscator.noMethodInsns(method) || method.name.startsWith('<'))
 					continue
 				
@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.indirection
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.processors.renaming.generation.NameGenerator
@@ -11,6 +13,7 @@ import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.Type
 import org.objectweb.asm.tree.*
 import kotlin.collections.ArrayList
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 22/Jan/2020
@@ -62,6 +65,8 @@ class DynamicCallObfuscation(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Transforming method calls to dynamic invokes"
 	override val config = rootConfig.indirection
+	override val reads: Set<ProcessorResource> = EnumSet.of(CLASS_SET, MEMBERS, CODE, ACCESS, ATTRIBUTES, HIERARCHY)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CLASS_SET, MEMBERS, CODE, OPAQUE_RUNTIME)
 	
 	private val IGNORE_RET_OPS = arrayOf(POP, POP2, RETURN, IFNONNULL, IFNULL, CHECKCAST)
 	
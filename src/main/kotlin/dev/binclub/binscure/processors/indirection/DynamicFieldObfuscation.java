@@ -2,6 +2,7 @@ package dev.binclub.binscure.processors.indirection;
 
 import dev.binclub.binscure.CObfuscator;
 import dev.binclub.binscure.IClassProcessor;
+import dev.binclub.binscure.ProcessorResource;
 import dev.binclub.binscure.api.transformers.IndirectionConfiguration;
 import dev.binclub.binscure.classpath.ClassSources;
 import dev.binclub.binscure.utils.*;
@@ -12,9 +13,13 @@ import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.*;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
-import static dev.binclub.binscure.configuration.ConfigurationManager.rootConfig;
+import static dev.binclub.binscure.configuration.ConfigurationManager.getRootConfig;
+import static dev.binclub.binscure.ProcessorResource.*;
 import static org.objectweb.asm.Opcodes.*;
 
 public class DynamicFieldObfuscation extends IClassProcessor {
@@ -31,7 +36,24 @@ public class DynamicFieldObfuscation extends IClassProcessor {
 	@NotNull
 	@Override
 	public IndirectionConfiguration getConfig() {
-		return rootConfig.getIndirection();
+		return getRootConfig().getIndirection();
+	}
+
+	private static final Set<ProcessorResource> READS =
+		Collections.unmodifiableSet(EnumSet.of(CLASS_SET, MEMBERS, CODE, ATTRIBUTES, ACCESS, HIERARCHY));
+	private static final Set<ProcessorResource> WRITES =
+		Collections.unmodifiableSet(EnumSet.of(CLASS_SET, MEMBERS, CODE, OPAQUE_RUNTIME));
+
+	@NotNull
+	@Override
+	public Set<ProcessorResource> getReads() {
+		return READS;
+	}
+	
+	@NotNull
+	@Override
+	public Set<ProcessorResource> getWrites() {
+		return WRITES;
 	}
 
 
@@ -76,7 +98,7 @@ public class DynamicFieldObfuscation extends IClassProcessor {
 
 					// initialise
 					if (runtimeClassNode == null) {
-						runtimeClassNode = CObfuscator.opaqueRuntimeManager.getClassNode();
+						runtimeClassNode = CObfuscator.INSTANCE.getOpaqueRuntimeManager().getClassNode();
 						MethodNode bsm = createBsm();
 						runtimeClassNode.methods.add(bsm);
 						bootstrapHandle = new Handle(
@@ -2,6 +2,7 @@ package dev.binclub.binscure.processors.indirection;
 
 import dev.binclub.binscure.CObfuscator;
 import dev.binclub.binscure.IClassProcessor;
+import dev.binclub.binscure.ProcessorResource;
 import dev.binclub.binscure.api.transformers.IndirectionConfiguration;
 import dev.binclub.binscure.classpath.ClassSources;
 import dev.binclub.binscure.utils.ExtensionsKt;
@@ -16,7 +17,8 @@ import org.objectweb.asm.tree.*;
 import java.lang.reflect.Modifier;
 import java.util.*;
 
-import static dev.binclub.binscure.configuration.ConfigurationManager.rootConfig;
+import static dev.binclub.binscure.configuration.ConfigurationManager.getRootConfig;
+import static dev.binclub.binscure.ProcessorResource.*;
 import static org.objectweb.asm.Opcodes.*;
 import static org.objectweb.asm.Type.BOOLEAN;
 
@@ -35,7 +37,24 @@ public class DynamicVariableObfuscation extends IClassProcessor {
 	@NotNull
 	@Override
 	public IndirectionConfiguration getConfig() {
-		return rootConfig.getIndirection();
+		return getRootConfig().getIndirection();
+	}
+
+	private static final Set<ProcessorResource> READS =
+		Collections.unmodifiableSet(EnumSet.of(CLASS_SET, MEMBERS, CODE, ATTRIBUTES, ACCESS, HIERARCHY));
+	private static final Set<ProcessorResource> WRITES =
+		Collections.unmodifiableSet(EnumSet.of(CLASS_SET, MEMBERS, CODE, OPAQUE_RUNTIME));
+
+	@NotNull
+	@Override
+	public Set<ProcessorResource> getReads() {
+		return READS;
+	}
+	
+	@NotNull
+	@Override
+	public Set<ProcessorResource> getWrites() {
+		return WRITES;
 	}
 	
 	
@@ -94,7 +113,7 @@ public class DynamicVariableObfuscation extends IClassProcessor {
 					
 					// initialise
 					if (runtimeClassNode == null) {
-						runtimeClassNode = CObfuscator.opaqueRuntimeManager.getClassNode();
+						runtimeClassNode = CObfuscator.INSTANCE.getOpaqueRuntimeManager().getClassNode();
 						MethodNode bsm = createGetUnsafeBsm();
 						runtimeClassNode.methods.add(bsm);
 						bootstrapHandle = new Handle(
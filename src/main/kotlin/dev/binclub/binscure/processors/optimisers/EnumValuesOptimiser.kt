@@ -1,12 +1,15 @@
 package dev.binclub.binscure.processors.optimisers
 
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import dev.binclub.binscure.utils.hasAccess
 import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.tree.ClassNode
 import org.objectweb.asm.tree.MethodInsnNode
+import java.util.EnumSet
 
 /**
  *
@@ -21,6 +24,8 @@ class EnumValuesOptimiser(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Optimising enum values"
 	override val config = rootConfig.optimisation
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, ACCESS, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CODE)
 	
 	override fun process(
 		source: ClassSources,
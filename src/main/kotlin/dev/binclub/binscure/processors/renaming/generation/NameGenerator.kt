@@ -11,14 +11,24 @@ import org.objectweb.asm.tree.ClassNode
  */
 open class NameGenerator(val prefix: String = "") {
 	companion object {
-		val CHARSET = kotlin.run {
-			var chars = rootConfig.remap.dictionary.toCharArray()
-			if (chars.size < 1) {
-				System.err.println("\rWARNING: Empty remap charset")
-				chars = "c0123456789abdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray()
+		@Volatile
+		private var charset: Pair<String, CharArray>? = null
+		
+		// Follows the current configuration, which can change between jobs of a daemon
+		val CHARSET: CharArray
+			get() {
+				val dictionary = rootConfig.remap.dictionary
+				charset?.let { (source, chars) ->
+					if (source == dictionary) return chars
+				}
+				var chars = dictionary.toCharArray()
+				if (chars.size < 1) {
+					System.err.println("\rWARNING: Empty remap charset")
+					chars = "c0123456789abdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray()
+				}
+				charset = dictionary to chars
+				return chars
 			}
-			chars
-		}
 		
 		/**
 		 * @param index A unique positive integer
@@ -68,8 +78,7 @@ open class NameGenerator(val prefix: String = "") {
 		do {
 			val out = uniqueRandomString()
 			if (
-				!sources.classes.containsKey(out) &&
-				!sources.classPath.containsKey(out) &&
+				!sources.containsClass(out) &&
 				!sources.passThrough.containsKey("$out.class")
 			) {
 				return out
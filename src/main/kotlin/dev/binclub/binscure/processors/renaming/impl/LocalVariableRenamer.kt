@@ -1,19 +1,35 @@
 package dev.binclub.binscure.processors.renaming.impl
 
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
-import org.objectweb.asm.tree.ClassNode
-import org.objectweb.asm.tree.LdcInsnNode
-import org.objectweb.asm.tree.MethodInsnNode
+import dev.binclub.binscure.processors.InstructionRewriter
+import dev.binclub.binscure.processors.InstructionRewriter.Companion.UNHANDLED
+import dev.binclub.binscure.processors.InstructionRewriter.MethodRewriter
+import dev.binclub.binscure.processors.InstructionWalker
+import dev.binclub.binscure.utils.InstructionModifier
+import org.objectweb.asm.Opcodes.LDC
+import org.objectweb.asm.tree.*
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 22/Jan/2020
  */
-class LocalVariableRenamer(source: ClassSources): IClassProcessor(source) {
+class LocalVariableRenamer(source: ClassSources): IClassProcessor(source), InstructionRewriter {
 	override val progressDescription: String
 		get() = "Renaming local variables"
 	override val config = rootConfig.remap
+	override val classLocal: Boolean
+		get() = true
+	override val reads: Set<ProcessorResource> = EnumSet.of(MEMBERS, CODE, DEBUG_INFO, ATTRIBUTES)
+	override val writes: Set<ProcessorResource> = EnumSet.of(CODE, DEBUG_INFO)
+	override val keepsInputConstants: Boolean
+		get() = !config.areLocalsEnabled()
+	
+	override val rewrittenOpcodes: IntArray = intArrayOf(LDC)
+	private val walker by lazy { InstructionWalker(listOf(this)) }
 	
 	override fun process(
 		source: ClassSources,
@@ -23,49 +39,54 @@ class LocalVariableRenamer(source: ClassSources): IClassProcessor(source) {
 		if (!config.areLocalsEnabled())
 			return
 		
-		val name = config.localVariableName
 		for (classNode in classes) {
-			if (isExcluded(classNode))
-				continue
-			
-			for (method in classNode.methods) {
-				if (isExcluded(classNode, method))
-					continue
-				
-				val nameMap = mutableMapOf<String, String>()
-				
-				if (name.isEmpty()) {
-					method.localVariables = null
-				} else {
-					for (localVariable in method.localVariables ?: continue) {
-						nameMap[localVariable.name] = "$name:${localVariable.desc}"
-						localVariable.name = name
-					}
-				}
-				
-				if (method.parameters != null) {
-					for (parameter in method.parameters) {
-						parameter.name = name
-					}
-				}
-				
-				for (insn in method.instructions) {
-					if (insn is LdcInsnNode && insn.cst is String) {
-						val nextInsn = insn.next
-						if (
-							nextInsn != null
-							&&
-							nextInsn is MethodInsnNode
-							&&
-							nextInsn.owner == "kotlin/jvm/internal/Intrinsics"
-							&&
-							nextInsn.name == "checkParameterIsNotNull"
-						) {
-							val cst = insn.cst as String
-							insn.cst = nameMap.getOrDefault(cst, "[Removed By CObf]")
-						}
+			walker.rewrite(classNode)
+		}
+	}
+	
+	override fun rewriteClass(classNode: ClassNode): Boolean = config.areLocalsEnabled() && !isExcluded(classNode)
+	
+	override fun rewriter(classNode: ClassNode, method: MethodNode): MethodRewriter? {
+		if (isExcluded(classNode, method))
+			return null
+		
+		val name = config.localVariableName
+		val nameMap = mutableMapOf<String, String>()
+		
+		if (name.isEmpty()) {
+			method.localVariables = null
+		} else {
+			for (localVariable in method.localVariables ?: return null) {
+				nameMap[localVariable.name] = "$name:${localVariable.desc}"
+				localVariable.name = name
+			}
+		}
+		
+		if (method.parameters != null) {
+			for (parameter in method.parameters) {
+				parameter.name = name
+			}
+		}
+		
+		return object: MethodRewriter {
+			override fun rewrite(insn: AbstractInsnNode, modifier: InstructionModifier): Int {
+				if (insn is LdcInsnNode && insn.cst is String) {
+					val nextInsn = insn.next
+					if (
+						nextInsn != null
+						&&
+						nextInsn is MethodInsnNode
+						&&
+						nextInsn.owner == "kotlin/jvm/internal/Intrinsics"
+						&&
+						nextInsn.name == "checkParameterIsNotNull"
+					) {
+						val cst = insn.cst as String
+						insn.cst = nameMap.getOrDefault(cst, "[Removed By CObf]")
 					}
 				}
+				// Only changes the constant in place, so other rewriters are still free to handle the instruction
+				return UNHANDLED
 			}
 		}
 	}
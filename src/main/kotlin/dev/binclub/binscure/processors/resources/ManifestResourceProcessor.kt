@@ -2,6 +2,8 @@ package dev.binclub.binscure.processors.resources
 
 import dev.binclub.binscure.CObfuscator
 import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorResource
+import dev.binclub.binscure.ProcessorResource.*
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.configuration.ConfigurationManager.rootConfig
 import org.objectweb.asm.tree.ClassNode
@@ -9,6 +11,7 @@ import java.io.ByteArrayInputStream
 import java.io.ByteArrayOutputStream
 import java.util.jar.Attributes
 import java.util.jar.Manifest
+import java.util.EnumSet
 
 /**
  * @author cookiedragon234 26/Jan/2020
@@ -17,6 +20,8 @@ class ManifestResourceProcessor(source: ClassSources): IClassProcessor(source) {
 	override val progressDescription: String
 		get() = "Processing manifests"
 	override val config = rootConfig
+	override val reads: Set<ProcessorResource> = EnumSet.of(MAPPINGS)
+	override val writes: Set<ProcessorResource> = EnumSet.of(PASS_THROUGH)
 	
 	override fun process(
 		source: ClassSources,
@@ -24,9 +29,10 @@ class ManifestResourceProcessor(source: ClassSources): IClassProcessor(source) {
 		passThrough: MutableMap<String, ByteArray>
 	) {
 		val sorted = CObfuscator.mappings.entries.sortedByDescending { it.key.length }
-		for ((name, bytes) in passThrough) {
+		// Only the files that are processed are read
+		for (name in passThrough.keys) {
 			if (name.endsWith(".json", true)) {
-				var contents = String(bytes)
+				var contents = String(passThrough[name]!!)
 				for (mapping in sorted) {
 					if (!mapping.key.contains('.')) {
 						contents = contents.replace(
@@ -38,7 +44,7 @@ class ManifestResourceProcessor(source: ClassSources): IClassProcessor(source) {
 				passThrough[name] = contents.toByteArray()
 			} else if (name.endsWith(".MF", true)) {
 				try {
-					val manifest = Manifest(ByteArrayInputStream(bytes))
+					val manifest = Manifest(ByteArrayInputStream(passThrough[name]!!))
 					fun processAttribute(attribute: Attributes) {
 						for (entry in attribute.entries) {
 							if (entry.value is String) {
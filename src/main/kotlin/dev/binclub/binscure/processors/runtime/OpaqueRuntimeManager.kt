@@ -5,6 +5,7 @@ import dev.binclub.binscure.CObfuscator.random
 import dev.binclub.binscure.classpath.ClassSources
 import dev.binclub.binscure.processors.flow.MethodParameterObfuscator
 import dev.binclub.binscure.utils.add
+import dev.binclub.binscure.utils.RandomStreams
 import dev.binclub.binscure.utils.random
 import dev.binclub.binscure.processors.renaming.generation.NameGenerator
 import dev.binclub.binscure.utils.*
@@ -27,7 +28,9 @@ import kotlin.math.min
 class OpaqueRuntimeManager (val sources: ClassSources) {
 	private var fieldNum = 0
 	
-	val classNodeDelegate = lazy { ClassNode().apply {
+	// The runtime is generated lazily by whichever processor (and thread) needs it first, so it draws from its own
+	// stream rather than the current one
+	val classNodeDelegate = lazy { RandomStreams.withStream(javaClass.name) { ClassNode().apply {
 		this.access = ACC_PUBLIC
 		this.version = V1_8
 		this.name = CObfuscator.classNamer.uniqueUntakenClass(sources)
@@ -42,7 +45,7 @@ class OpaqueRuntimeManager (val sources: ClassSources) {
 			add(RETURN)
 		}
 		methods.add(ctor)
-	} }
+	} } }
 	val classNode by classNodeDelegate
 	// Returns the classnode only if its been generated
 	fun getClassNodeSafe(): ClassNode? =
@@ -57,9 +60,15 @@ class OpaqueRuntimeManager (val sources: ClassSources) {
 	
 	// The larger the application, the larger the number of fields we want available
 	// We will use the number of classes / 2, at least 3 and at most 25
-	val fields by lazy {
-		Array(min(max(sources.classes.size / 2, 3), 25)) { generateField() }
+	private val fieldsDelegate = lazy {
+		RandomStreams.withStream(javaClass.name, "fields") {
+			Array(min(max(sources.inputClassCount / 2, 3), 25)) { generateField() }
+		}
 	}
+	val fields by fieldsDelegate
+	// Returns the fields only if they have been generated
+	fun getFieldsSafe(): Array<FieldInfo>? =
+		if (fieldsDelegate.isInitialized()) fields else null
 	
 	private fun generateField(): FieldInfo {
 		if (CObfuscator.DEBUG) {
@@ -5,7 +5,6 @@ import org.objectweb.asm.Opcodes.*
 import org.objectweb.asm.Type
 import org.objectweb.asm.tree.*
 import java.lang.reflect.Modifier
-import java.security.SecureRandom
 import java.util.*
 import kotlin.reflect.KClass
 import kotlin.reflect.KFunction
@@ -31,7 +30,7 @@ infix fun Char.xor(int: Int): Char {
 
 fun KClass<*>.getDescriptor(): String = Type.getDescriptor(this.java)
 
-fun CharArray.random(random: SecureRandom): Char {
+fun CharArray.random(random: Random): Char {
 	if (isEmpty())
 		throw NoSuchElementException("Array is empty.")
 	return get(random.nextInt(size))
@@ -69,13 +68,13 @@ fun <K, V> Map<K, V>.toPrettyString(): String {
 	return sb.removeSuffix("\n").toString()
 }
 
-fun <T> Collection<T>.random(random: SecureRandom): T {
+fun <T> Collection<T>.random(random: Random): T {
 	if (isEmpty())
 		throw NoSuchElementException("Collection is empty.")
 	return elementAt(random.nextInt(size))
 }
 
-fun <T> Array<T>.random(random: SecureRandom): T {
+fun <T> Array<T>.random(random: Random): T {
 	if (isEmpty())
 		throw NoSuchElementException("Collection is empty.")
 	return elementAt(random.nextInt(size))
@@ -216,6 +215,37 @@ fun ClassNode.versionAtMost(maxVersion: Int): Boolean {
 	return thisMajor <= maxMajor
 }
 
+/**
+ * Replaces the contents of this class with those of [other], including its name, keeping its identity. Only
+ * [ClassNode.originalName] and [ClassNode.verify] are kept, they are not part of the class file
+ */
+fun ClassNode.replaceWith(other: ClassNode) {
+	this.version = other.version
+	this.access = other.access
+	this.name = other.name
+	this.signature = other.signature
+	this.superName = other.superName
+	this.interfaces = other.interfaces
+	this.sourceFile = other.sourceFile
+	this.sourceDebug = other.sourceDebug
+	this.module = other.module
+	this.outerClass = other.outerClass
+	this.outerMethod = other.outerMethod
+	this.outerMethodDesc = other.outerMethodDesc
+	this.visibleAnnotations = other.visibleAnnotations
+	this.invisibleAnnotations = other.invisibleAnnotations
+	this.visibleTypeAnnotations = other.visibleTypeAnnotations
+	this.invisibleTypeAnnotations = other.invisibleTypeAnnotations
+	this.attrs = other.attrs
+	this.innerClasses = other.innerClasses
+	this.nestHostClass = other.nestHostClass
+	this.nestMembers = other.nestMembers
+	this.permittedSubclasses = other.permittedSubclasses
+	this.recordComponents = other.recordComponents
+	this.fields = other.fields
+	this.methods = other.methods
+}
+
 val Type.doubleSize: Boolean
 	get() = (this.sort == Type.DOUBLE || this.sort == Type.LONG)
 
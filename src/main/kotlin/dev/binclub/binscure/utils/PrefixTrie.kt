@@ -0,0 +1,44 @@
+package dev.binclub.binscure.utils
+
+/**
+ * A set of [prefixes] that a name is matched against one character at a time, so matching costs the length of the
+ * matched prefix however many prefixes there are, rather than a startsWith per prefix
+ *
+ * @author cook 18/Oct/2026
+ */
+class PrefixTrie(prefixes: Iterable<String>) {
+	private class Node {
+		var children: HashMap<Char, Node>? = null
+		/** True if a prefix ends here */
+		var terminal = false
+	}
+
+	private val root = Node()
+
+	init {
+		for (prefix in prefixes) {
+			var node = root
+			for (c in prefix) {
+				val children = node.children ?: HashMap<Char, Node>(4).also { node.children = it }
+				node = children.getOrPut(c, ::Node)
+			}
+			node.terminal = true
+		}
+	}
+
+	val isEmpty: Boolean
+		get() = !root.terminal && root.children == null
+
+	/**
+	 * True if [name] starts with any of the prefixes
+	 */
+	fun matches(name: String): Boolean {
+		var node = root
+		for (c in name) {
+			if (node.terminal)
+				return true
+			node = node.children?.get(c) ?: return false
+		}
+		return node.terminal
+	}
+}
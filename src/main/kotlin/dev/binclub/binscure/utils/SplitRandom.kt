@@ -0,0 +1,87 @@
+package dev.binclub.binscure.utils
+
+import java.security.SecureRandom
+import java.util.Random
+
+/**
+ * A SplitMix64 generator. Unlike [SecureRandom] (and [Random] itself) it does no synchronisation or CAS on every draw,
+ * so each instance must only be used by one thread at a time.
+ *
+ * @author cook 18/Oct/2026
+ */
+class SplitRandom(private var state: Long): Random(0L) {
+	override fun setSeed(seed: Long) {
+		// Called by the Random constructor, before our state has been assigned
+		state = seed
+	}
+
+	override fun next(bits: Int): Int = (nextLong() ushr (64 - bits)).toInt()
+
+	override fun nextInt(): Int = (nextLong() ushr 32).toInt()
+
+	override fun nextLong(): Long {
+		state += GOLDEN_GAMMA
+		return mix64(state)
+	}
+
+	companion object {
+		private const val GOLDEN_GAMMA = -0x61c8864680b583ebL
+		private const val FNV_PRIME = 0x100000001b3L
+
+		fun mix64(value: Long): Long {
+			var z = value
+			z = (z xor (z ushr 30)) * -0x40a7b892e31b1a47L
+			z = (z xor (z ushr 27)) * -0x6b2fb644ecceee15L
+			return z xor (z ushr 31)
+		}
+
+		/**
+		 * Derives a new independent generator from a seed and a list of keys (processor name, class name...)
+		 */
+		fun derive(seed: Long, keys: Array<out String>): SplitRandom {
+			var hash = seed
+			for (key in keys) {
+				hash = mix64(hash + GOLDEN_GAMMA)
+				for (c in key) {
+					hash = (hash xor c.code.toLong()) * FNV_PRIME
+				}
+			}
+			return SplitRandom(mix64(hash))
+		}
+	}
+}
+
+/**
+ * Every thread draws from its own current stream. The pipeline switches the current stream for every (processor,
+ * class) pair it runs, so the output for a given seed does not depend on which thread processed what, or in which order
+ */
+object RandomStreams {
+	var seed: Long = SecureRandom().nextLong()
+		private set
+
+	private val local = ThreadLocal<SplitRandom>()
+
+	var current: SplitRandom
+		get() = local.get() ?: stream().also { local.set(it) }
+		set(value) = local.set(value)
+
+	/**
+	 * Sets the root seed, a null seed picks a random one
+	 */
+	fun reset(seed: Long?) {
+		this.seed = seed ?: SecureRandom().nextLong()
+		local.set(stream())
+	}
+
+	fun stream(vararg keys: String): SplitRandom = SplitRandom.derive(seed, keys)
+
+	inline fun <T> withStream(vararg keys: String, block: () -> T): T {
+		val previous = current
+		current = stream(*keys)
+		try {
+			return block()
+		} finally {
+			current = previous
+		}
+	}
+}
@@ -17,7 +17,7 @@ import java.io.PrintStream
 import java.io.PrintWriter
 import java.lang.reflect.Field
 import java.lang.reflect.Modifier
-import java.security.SecureRandom
+import java.util.Random
 
 
 /**
@@ -156,16 +156,16 @@ fun getNumFromLdc(insn: AbstractInsnNode): Number {
 	}
 }
 
-inline fun <T> randomBranch(random: SecureRandom, block0: (Int) -> T): T {
+inline fun <T> randomBranch(random: Random, block0: (Int) -> T): T {
 	return block0.invoke(0)
 }
-inline fun <T> randomBranch(random: SecureRandom, block0: (Int) -> T, block1: (Int) -> T): T {
+inline fun <T> randomBranch(random: Random, block0: (Int) -> T, block1: (Int) -> T): T {
 	return when (random.nextBoolean()) {
 		false -> block0(0)
 		true -> block1(1)
 	}
 }
-inline fun <T> randomBranch(random: SecureRandom, block0: (Int) -> T, block1: (Int) -> T, block2: (Int) -> T): T {
+inline fun <T> randomBranch(random: Random, block0: (Int) -> T, block1: (Int) -> T, block2: (Int) -> T): T {
 	return when (random.nextInt(3)) {
 		0 -> block0(0)
 		1 -> block1(1)
@@ -174,7 +174,7 @@ inline fun <T> randomBranch(random: SecureRandom, block0: (Int) -> T, block1: (I
 	}
 }
 inline fun <T> randomBranch(
-	random: SecureRandom,
+	random: Random,
 	block0: (Int) -> T,
 	block1: (Int) -> T,
 	block2: (Int) -> T,
@@ -189,7 +189,7 @@ inline fun <T> randomBranch(
 	}
 }
 inline fun <T> randomBranch(
-	random: SecureRandom,
+	random: Random,
 	block0: (Int) -> T,
 	block1: (Int) -> T,
 	block2: (Int) -> T,
@@ -206,7 +206,7 @@ inline fun <T> randomBranch(
 	}
 }
 inline fun <T> randomBranch(
-	random: SecureRandom,
+	random: Random,
 	block0: (Int) -> T,
 	block1: (Int) -> T,
 	block2: (Int) -> T,
@@ -225,7 +225,7 @@ inline fun <T> randomBranch(
 	}
 }
 inline fun <T> randomBranch(
-	random: SecureRandom,
+	random: Random,
 	block0: (Int) -> T,
 	block1: (Int) -> T,
 	block2: (Int) -> T,
@@ -36,6 +36,7 @@ import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.ModuleVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.RecordComponentVisitor;
 import org.objectweb.asm.TypePath;
 
 /**
@@ -132,6 +133,12 @@ public class ClassNode extends ClassVisitor {
 	/** The internal names of the nest members of this class. May be {@literal null}. */
 	public List<String> nestMembers;
 	
+	/** The internal names of the permitted subclasses of this class. May be {@literal null}. */
+	public List<String> permittedSubclasses;
+	
+	/** The record components of this class. May be {@literal null}. */
+	public List<RecordComponentNode> recordComponents;
+	
 	/** The fields of this class. */
 	public List<FieldNode> fields;
 	
@@ -145,7 +152,7 @@ public class ClassNode extends ClassVisitor {
 	 * @throws IllegalStateException If a subclass calls this constructor.
 	 */
 	public ClassNode() {
-		this(Opcodes.ASM7);
+		this(Opcodes.ASM9);
 		if (getClass() != ClassNode.class) {
 			throw new IllegalStateException();
 		}
@@ -155,7 +162,8 @@ public class ClassNode extends ClassVisitor {
 	 * Constructs a new {@link ClassNode}.
 	 *
 	 * @param api the ASM API version implemented by this visitor. Must be one of {@link
-	 *     Opcodes#ASM4}, {@link Opcodes#ASM5}, {@link Opcodes#ASM6} or {@link Opcodes#ASM7}.
+	 *     Opcodes#ASM4}, {@link Opcodes#ASM5}, {@link Opcodes#ASM6}, {@link Opcodes#ASM7}, {@link
+	 *     Opcodes#ASM8} or {@link Opcodes#ASM9}.
 	 */
 	public ClassNode(final int api) {
 		super(api);
@@ -260,6 +268,14 @@ public class ClassNode extends ClassVisitor {
 		nestMembers.add(nestMember);
 	}
 	
+	@Override
+	public void visitPermittedSubclass(final String permittedSubclass) {
+		if (permittedSubclasses == null) {
+			permittedSubclasses = new ArrayList<>();
+		}
+		permittedSubclasses.add(permittedSubclass);
+	}
+	
 	@Override
 	public void visitInnerClass(
 			final String name, final String outerName, final String innerName, final int access) {
@@ -267,6 +283,17 @@ public class ClassNode extends ClassVisitor {
 		innerClasses.add(innerClass);
 	}
 	
+	@Override
+	public RecordComponentVisitor visitRecordComponent(
+			final String name, final String descriptor, final String signature) {
+		RecordComponentNode recordComponent = new RecordComponentNode(name, descriptor, signature);
+		if (recordComponents == null) {
+			recordComponents = new ArrayList<>();
+		}
+		recordComponents.add(recordComponent);
+		return recordComponent;
+	}
+	
 	@Override
 	public FieldVisitor visitField(
 			final int access,
@@ -306,9 +333,15 @@ public class ClassNode extends ClassVisitor {
 	 * in more recent versions of the ASM API than the given version.
 	 *
 	 * @param api an ASM API version. Must be one of {@link Opcodes#ASM4}, {@link Opcodes#ASM5},
-	 *     {@link Opcodes#ASM6} or {@link Opcodes#ASM7}.
+	 *     {@link Opcodes#ASM6}, {@link Opcodes#ASM7}, {@link Opcodes#ASM8} or {@link Opcodes#ASM9}.
 	 */
 	public void check(final int api) {
+		if (api < Opcodes.ASM9 && permittedSubclasses != null) {
+			throw new UnsupportedClassVersionException();
+		}
+		if (api < Opcodes.ASM8 && ((access & Opcodes.ACC_RECORD) != 0 || recordComponents != null)) {
+			throw new UnsupportedClassVersionException();
+		}
 		if (api < Opcodes.ASM7 && (nestHostClass != null || nestMembers != null)) {
 			throw new UnsupportedClassVersionException();
 		}
@@ -344,6 +377,11 @@ public class ClassNode extends ClassVisitor {
 				invisibleTypeAnnotations.get(i).check(api);
 			}
 		}
+		if (recordComponents != null) {
+			for (int i = recordComponents.size() - 1; i >= 0; --i) {
+				recordComponents.get(i).check(api);
+			}
+		}
 		for (int i = fields.size() - 1; i >= 0; --i) {
 			fields.get(i).check(api);
 		}
@@ -419,10 +457,22 @@ public class ClassNode extends ClassVisitor {
 				classVisitor.visitNestMember(nestMembers.get(i));
 			}
 		}
+		// Visit the permitted subclasses.
+		if (permittedSubclasses != null) {
+			for (int i = 0, n = permittedSubclasses.size(); i < n; ++i) {
+				classVisitor.visitPermittedSubclass(permittedSubclasses.get(i));
+			}
+		}
 		// Visit the inner classes.
 		for (int i = 0, n = innerClasses.size(); i < n; ++i) {
 			innerClasses.get(i).accept(classVisitor);
 		}
+		// Visit the record components.
+		if (recordComponents != null) {
+			for (int i = 0, n = recordComponents.size(); i < n; ++i) {
+				recordComponents.get(i).accept(classVisitor);
+			}
+		}
 		// Visit the fields.
 		for (int i = 0, n = fields.size(); i < n; ++i) {
 			fields.get(i).accept(classVisitor);
@@ -0,0 +1,160 @@
+package dev.binclub.binscure
+
+import dev.binclub.binscure.api.CodeSource
+import dev.binclub.binscure.api.RootConfiguration
+import dev.binclub.binscure.api.transformers.*
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.tree.MethodNode
+import org.objectweb.asm.tree.analysis.Analyzer
+import org.objectweb.asm.util.Textifier
+import java.io.File
+import java.net.URLClassLoader
+import java.nio.file.Files
+import java.util.zip.ZipFile
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+import kotlin.test.fail
+
+/**
+ * Obfuscates asm-util, with asm, asm-tree and asm-analysis as libraries, in each of the modes of the pipeline
+ *
+ * @author cook 18/Oct/2026
+ */
+class CObfuscatorTest {
+	private val directory = Files.createTempDirectory("binscure").toFile()
+
+	@AfterTest
+	fun deleteDirectory() {
+		directory.deleteRecursively()
+	}
+
+	/**
+	 * Obfuscates the input into [name] with most transformers enabled, as changed by [configure]
+	 */
+	private fun obfuscate(name: String, configure: (RootConfiguration) -> RootConfiguration = { it }): File {
+		val output = File(directory, name)
+		CObfuscator.obfuscate(configure(testConfiguration().copy(
+			sources = listOf(CodeSource(INPUT, output)),
+			libraries = LIBRARIES,
+			arithmetic = ArithmeticObfuscationConfiguration(true),
+			remap = RemapConfiguration(true),
+			sourceStrip = SourceStripConfiguration(true),
+			kotlinMetadata = KotlinMetadataConfiguration(true),
+			stringObfuscation = StringObfuscationConfiguration(true),
+			flowObfuscation = FlowObfuscationConfiguration(true, mergeMethods = MergeMethods.NONE),
+			methodParameter = MethodParameterConfiguration(true),
+			optimisation = OptimisationConfiguration(true),
+			numberObfuscation = NumberObfuscationConfiguration(true),
+			seed = 7
+		)))
+		return output
+	}
+
+	/** The contents of every entry of [file], in order */
+	private fun entries(file: File): List<Pair<String, List<Byte>>> = ZipFile(file).use { zip ->
+		zip.entries().toList().map { it.name to zip.getInputStream(it).readBytes().toList() }
+	}
+
+	private fun assertSameEntries(expected: File, actual: File) {
+		val expectedEntries = entries(expected)
+		val actualEntries = entries(actual)
+		assertEquals(expectedEntries.map { it.first }, actualEntries.map { it.first })
+		for ((i, entry) in expectedEntries.withIndex()) {
+			assertTrue(entry.second == actualEntries[i].second, "${entry.first} differs")
+		}
+	}
+
+	/**
+	 * Loads and initializes every class of [output], which fails if any of them does not verify
+	 */
+	private fun assertLoads(output: File) {
+		val classes = entries(output).map { it.first }.filter { it.endsWith(".class") }
+		assertTrue(classes.size >= INPUT_CLASSES, "${classes.size} classes")
+		URLClassLoader((listOf(output) + LIBRARIES).map { it.toURI().toURL() }.toTypedArray(), null).use { loader ->
+			for (entry in classes) {
+				val name = entry.removeSuffix(".class").replace('/', '.')
+				try {
+					Class.forName(name, true, loader)
+				} catch (e: VerifyError) {
+					fail("$name does not verify: $e")
+				} catch (e: ClassFormatError) {
+					fail("$name is malformed: $e")
+				} catch (e: Throwable) {
+					// Classes may fail to initialize outside of their application
+				}
+			}
+		}
+	}
+
+	@Test
+	fun obfuscatesClassesInParallel() {
+		assertLoads(obfuscate("parallel.jar") { it.copy(threads = 4) })
+	}
+
+	@Test
+	fun sameSeedGivesTheSameOutput() {
+		val sequential = obfuscate("sequential.jar") { it.copy(threads = 1) }
+		val parallel = obfuscate("parallel.jar") { it.copy(threads = 4) }
+		assertSameEntries(sequential, parallel)
+	}
+
+	@Test
+	fun fusedPassesGiveWorkingOutput() {
+		assertLoads(obfuscate("fused.jar") { it.copy(threads = 4, fuseInstructionPasses = true) })
+	}
+
+	@Test
+	fun fusedRewritersGiveTheSameOutput() {
+		// Only instruction rewriters, which see the same instructions whether or not they are fused
+		fun rewritersOnly(config: RootConfiguration) = config.copy(
+			threads = 4,
+			arithmetic = ArithmeticObfuscationConfiguration(),
+			stringObfuscation = StringObfuscationConfiguration(),
+			flowObfuscation = FlowObfuscationConfiguration(),
+			methodParameter = MethodParameterConfiguration(),
+			optimisation = OptimisationConfiguration(),
+			numberObfuscation = NumberObfuscationConfiguration()
+		)
+		val inTurn = obfuscate("in-turn.jar") { rewritersOnly(it) }
+		val fused = obfuscate("fused-rewriters.jar") { rewritersOnly(it).copy(fuseInstructionPasses = true) }
+		assertSameEntries(inTurn, fused)
+	}
+
+	@Test
+	fun cachedClassesGiveTheSameOutput() {
+		val cache = File(directory, "cache")
+		val cold = obfuscate("cold.jar") { it.copy(threads = 4, cacheDirectory = cache) }
+		assertTrue(cache.walk().any { it.isFile })
+		val warm = obfuscate("warm.jar") { it.copy(threads = 4, cacheDirectory = cache) }
+		assertSameEntries(cold, warm)
+	}
+
+	@Test
+	fun streamedOutputIsTheSame() {
+		val whole = obfuscate("whole.jar") { it.copy(threads = 4) }
+		val streamed = obfuscate("streamed.jar") { it.copy(threads = 4, streamBatchSize = 5) }
+		assertSameEntries(whole, streamed)
+	}
+
+	@Test
+	fun indexedLibrariesGiveTheSameOutput() {
+		val index = File(directory, "index")
+		val read = obfuscate("read.jar") { it.copy(threads = 4) }
+		val indexing = obfuscate("indexing.jar") { it.copy(threads = 4, libraryIndexDirectory = index) }
+		assertTrue(index.walk().any { it.isFile })
+		val indexed = obfuscate("indexed.jar") { it.copy(threads = 4, libraryIndexDirectory = index) }
+		assertSameEntries(read, indexing)
+		assertSameEntries(read, indexed)
+	}
+
+	companion object {
+		/** The jar [type] was loaded from */
+		private fun jarOf(type: Class<*>) = File(type.protectionDomain.codeSource.location.toURI())
+
+		private val INPUT = jarOf(Textifier::class.java)
+		private val LIBRARIES = listOf(jarOf(ClassReader::class.java), jarOf(MethodNode::class.java), jarOf(Analyzer::class.java))
+		private val INPUT_CLASSES = ZipFile(INPUT).use { zip -> zip.entries().toList().count { it.name.endsWith(".class") } }
+	}
+}
@@ -0,0 +1,156 @@
+package dev.binclub.binscure
+
+import dev.binclub.binscure.ProcessorResource.*
+import dev.binclub.binscure.api.TransformerConfiguration
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.configuration.ConfigurationManager
+import dev.binclub.binscure.processors.indirection.DynamicFieldObfuscation
+import dev.binclub.binscure.processors.indirection.DynamicVariableObfuscation
+import org.objectweb.asm.tree.ClassNode
+import java.util.Collections
+import java.util.EnumSet
+import java.util.concurrent.ForkJoinPool
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class ProcessorSchedulerTest {
+	private val source: ClassSources
+
+	init {
+		ConfigurationManager.rootConfig = testConfiguration()
+		source = ClassSources(emptyMap())
+	}
+
+	private inner class Processor(
+		override val reads: Set<ProcessorResource>,
+		override val writes: Set<ProcessorResource>,
+		override val classLocal: Boolean = false
+	): IClassProcessor(source) {
+		override val progressDescription: String
+			get() = "Testing"
+		override val config = TransformerConfiguration(true)
+
+		override fun process(source: ClassSources, classes: MutableCollection<ClassNode>, passThrough: MutableMap<String, ByteArray>) {}
+	}
+
+	private fun set(vararg resources: ProcessorResource): Set<ProcessorResource> =
+		if (resources.isEmpty()) ProcessorResource.NONE else EnumSet.copyOf(resources.toList())
+
+	private fun dependencies(scheduler: ProcessorScheduler, processor: Int) = scheduler.dependencies[processor].toList()
+
+	@Test
+	fun unrelatedProcessorsDoNotWait() {
+		val scheduler = ProcessorScheduler(arrayOf(
+			Processor(set(MEMBERS), set(CODE)),
+			Processor(set(ATTRIBUTES), set(DEBUG_INFO))
+		))
+		assertContentEquals(emptyList(), dependencies(scheduler, 1))
+	}
+
+	@Test
+	fun readersOfTheSameResourceDoNotWait() {
+		val scheduler = ProcessorScheduler(arrayOf(
+			Processor(set(CODE), set()),
+			Processor(set(CODE), set())
+		))
+		assertContentEquals(emptyList(), dependencies(scheduler, 1))
+	}
+
+	@Test
+	fun readersWaitForEarlierWriters() {
+		val scheduler = ProcessorScheduler(arrayOf(
+			Processor(set(), set(CODE)),
+			Processor(set(CODE), set())
+		))
+		assertContentEquals(listOf(0), dependencies(scheduler, 1))
+	}
+
+	@Test
+	fun writersWaitForEarlierReaders() {
+		val scheduler = ProcessorScheduler(arrayOf(
+			Processor(set(CODE), set()),
+			Processor(set(), set(CODE))
+		))
+		assertContentEquals(listOf(0), dependencies(scheduler, 1))
+	}
+
+	@Test
+	fun processorsTouchingEverythingRunAlone() {
+		val scheduler = ProcessorScheduler(arrayOf(
+			Processor(set(MEMBERS), set()),
+			Processor(ProcessorResource.ALL, ProcessorResource.ALL),
+			Processor(set(ATTRIBUTES), set())
+		))
+		assertContentEquals(listOf(0), dependencies(scheduler, 1))
+		assertContentEquals(listOf(1), dependencies(scheduler, 2))
+	}
+
+	@Test
+	fun measuredProcessorsReadMembersAndCode() {
+		val processors = arrayOf(
+			Processor(set(), set(CODE)),
+			Processor(set(ATTRIBUTES), set(ATTRIBUTES))
+		)
+		assertContentEquals(emptyList(), dependencies(ProcessorScheduler(processors), 1))
+		assertContentEquals(listOf(0), dependencies(ProcessorScheduler(processors, measured = true), 1))
+	}
+
+	@Test
+	fun watchedProcessorsOwnTheirClasses() {
+		val processors = arrayOf(
+			Processor(set(MEMBERS), set(MEMBERS), classLocal = true),
+			Processor(set(ATTRIBUTES), set(ATTRIBUTES), classLocal = true),
+			Processor(set(METHOD_SECRETS), set(METHOD_SECRETS), classLocal = false)
+		)
+		assertContentEquals(emptyList(), dependencies(ProcessorScheduler(processors), 1))
+		val watched = ProcessorScheduler(processors, watchdog = true)
+		assertContentEquals(listOf(0), dependencies(watched, 1))
+		assertContentEquals(emptyList(), dependencies(watched, 2))
+	}
+
+	@Test
+	fun indirectionWaitsForEarlierAttributeWriters() {
+		for (indirection in listOf(DynamicFieldObfuscation(source), DynamicVariableObfuscation(source))) {
+			val scheduler = ProcessorScheduler(arrayOf(
+				Processor(set(), set(ATTRIBUTES)),
+				indirection
+			))
+			assertContentEquals(listOf(0), dependencies(scheduler, 1))
+			assertSame(indirection.reads, indirection.reads)
+		}
+	}
+
+	@Test
+	fun runStartsProcessorsAfterTheirDependencies() {
+		val processors = arrayOf(
+			Processor(set(), set(CODE)),
+			Processor(set(MEMBERS), set(MEMBERS)),
+			Processor(set(CODE, MEMBERS), set()),
+			Processor(set(ATTRIBUTES), set())
+		)
+		val scheduler = ProcessorScheduler(processors)
+		val events = Collections.synchronizedList(ArrayList<String>())
+		val pool = ForkJoinPool(4)
+		try {
+			scheduler.run(pool) { processor ->
+				val i = processors.indexOf(processor)
+				events.add("start $i")
+				Thread.sleep(20)
+				events.add("end $i")
+			}
+		} finally {
+			pool.shutdown()
+		}
+		assertContentEquals(listOf(0, 1), dependencies(scheduler, 2))
+		for (i in processors.indices) {
+			assertTrue(events.indexOf("start $i") < events.indexOf("end $i"), "$i did not run once: $events")
+		}
+		assertTrue(events.indexOf("start 2") > events.indexOf("end 0"), "$events")
+		assertTrue(events.indexOf("start 2") > events.indexOf("end 1"), "$events")
+	}
+}
@@ -0,0 +1,171 @@
+package dev.binclub.binscure
+
+import dev.binclub.binscure.ProcessorResource.*
+import dev.binclub.binscure.api.TransformerConfiguration
+import dev.binclub.binscure.api.WatchdogConfiguration
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.classpath.OriginalFrames
+import dev.binclub.binscure.classpath.SampleClass
+import dev.binclub.binscure.configuration.ConfigurationManager
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.InsnNode
+import org.objectweb.asm.tree.MethodNode
+import org.objectweb.asm.util.Textifier
+import org.objectweb.asm.util.TraceMethodVisitor
+import java.util.EnumSet
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotEquals
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class ProcessorWatchdogTest {
+	private val source: ClassSources
+
+	init {
+		ConfigurationManager.rootConfig = testConfiguration().copy(
+			watchdog = WatchdogConfiguration(true, timeBudget = 100, maxGrowth = 2.0, growthAllowance = 10)
+		)
+		source = ClassSources(emptyMap())
+	}
+
+	private inner class Processor(
+		override val writes: Set<ProcessorResource>,
+		private val action: (ClassNode) -> Unit
+	): IClassProcessor(source) {
+		override val progressDescription: String
+			get() = "Testing"
+		override val config = TransformerConfiguration(true)
+		override val classLocal: Boolean
+			get() = true
+
+		override fun process(source: ClassSources, classes: MutableCollection<ClassNode>, passThrough: MutableMap<String, ByteArray>) {
+			classes.forEach(action)
+		}
+	}
+
+	private fun newMethod(name: String) = MethodNode(ACC_PUBLIC or ACC_STATIC, name, "()I", null, null).apply {
+		instructions.add(InsnNode(ICONST_1))
+		instructions.add(InsnNode(IRETURN))
+		maxStack = 1
+	}
+
+	private fun classNode() = ClassNode().apply {
+		version = V1_8
+		access = ACC_PUBLIC
+		name = "test/Watched"
+		superName = "java/lang/Object"
+		methods.add(newMethod("a"))
+		methods.add(newMethod("b"))
+	}
+
+	private fun ClassNode.method(name: String) = methods.first { it.name == name }
+
+	private fun MethodNode.grow(by: Int) = repeat(by) { instructions.insert(InsnNode(NOP)) }
+
+	private fun text(method: MethodNode): String {
+		val textifier = Textifier()
+		method.accept(TraceMethodVisitor(textifier))
+		return textifier.text.joinToString("")
+	}
+
+	private fun watch(processor: Processor, classNode: ClassNode) = ProcessorWatchdog.watch(processor, classNode, null) {
+		processor.process(source, mutableListOf(classNode), source.passThrough)
+	}
+
+	@Test
+	fun methodsThatGrewTooMuchAreRolledBack() {
+		val classNode = classNode()
+		val before = text(classNode.method("a"))
+		val processor = Processor(EnumSet.of(CODE)) {
+			it.method("a").grow(100)
+			it.method("b").grow(5)
+		}
+
+		assertTrue(watch(processor, classNode))
+		assertEquals(before, text(classNode.method("a")))
+		assertEquals(7, classNode.method("b").instructions.size())
+	}
+
+	@Test
+	fun classesAreRolledBackWhenTheProcessorChangedMoreThanCode() {
+		val classNode = classNode()
+		val before = text(classNode.method("a"))
+		val processor = Processor(EnumSet.of(MEMBERS, CODE)) {
+			it.fields.add(FieldNode(ACC_STATIC, "added", "I", null, null))
+			it.method("a").grow(100)
+			it.method("b").grow(5)
+		}
+
+		assertTrue(watch(processor, classNode))
+		assertTrue(classNode.fields.isEmpty())
+		assertEquals(before, text(classNode.method("a")))
+		assertEquals(2, classNode.method("b").instructions.size())
+	}
+
+	@Test
+	fun methodsWithinTheBudgetAreKept() {
+		val classNode = classNode()
+		val processor = Processor(EnumSet.of(CODE)) {
+			it.method("a").grow(8)
+		}
+
+		assertTrue(watch(processor, classNode))
+		assertEquals(10, classNode.method("a").instructions.size())
+	}
+
+	@Test
+	fun processorsOutOfTimeAreRolledBack() {
+		val classNode = classNode()
+		val before = text(classNode.method("a"))
+		val processor = Processor(EnumSet.of(CODE)) {
+			it.method("a").grow(1)
+			while (true) {
+				Thread.sleep(10)
+				ProcessorWatchdog.check()
+			}
+		}
+
+		assertFalse(watch(processor, classNode))
+		assertEquals(before, text(classNode.method("a")))
+		assertNotEquals(0, classNode.methods.size)
+	}
+
+	/** A class read with its frames, which are taken out into the frames of [source] */
+	private fun framedClass() = SampleClass.read().also { OriginalFrames.strip(it, source.originalFrames) }
+
+	private fun assertFramesKept(classNode: ClassNode) {
+		assertEquals(classNode.methods.toSet(), source.originalFrames.keys)
+		for (method in classNode.methods) {
+			assertEquals(OriginalFrames.Change.NONE, source.originalFrames.getValue(method).compare(classNode, method), method.name)
+		}
+	}
+
+	@Test
+	fun rolledBackMethodsKeepTheirFrames() {
+		val classNode = framedClass()
+		val processor = Processor(EnumSet.of(CODE)) {
+			it.method("box").grow(100)
+		}
+
+		assertTrue(watch(processor, classNode))
+		assertFramesKept(classNode)
+	}
+
+	@Test
+	fun rolledBackClassesKeepTheirFrames() {
+		val classNode = framedClass()
+		val processor = Processor(EnumSet.of(MEMBERS, CODE)) {
+			it.fields.add(FieldNode(ACC_STATIC, "added", "I", null, null))
+			it.method("box").grow(100)
+		}
+
+		assertTrue(watch(processor, classNode))
+		assertFramesKept(classNode)
+	}
+}
@@ -0,0 +1,27 @@
+package dev.binclub.binscure
+
+import dev.binclub.binscure.api.RootConfiguration
+import dev.binclub.binscure.api.transformers.*
+
+/**
+ * A configuration with every transformer disabled, for tests of anything that reads the root configuration
+ *
+ * @author cook 18/Oct/2026
+ */
+fun testConfiguration(): RootConfiguration = RootConfiguration(
+	sources = emptyList(),
+	mappingFile = null,
+	arithmetic = ArithmeticObfuscationConfiguration(),
+	remap = RemapConfiguration(),
+	sourceStrip = SourceStripConfiguration(),
+	kotlinMetadata = KotlinMetadataConfiguration(),
+	crasher = CrasherConfiguration(),
+	indirection = IndirectionConfiguration(),
+	stringObfuscation = StringObfuscationConfiguration(),
+	flowObfuscation = FlowObfuscationConfiguration(),
+	methodParameter = MethodParameterConfiguration(),
+	optimisation = OptimisationConfiguration(),
+	numberObfuscation = NumberObfuscationConfiguration(),
+	expiryDate = null,
+	printProgress = false
+)
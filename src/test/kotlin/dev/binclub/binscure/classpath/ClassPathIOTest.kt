@@ -0,0 +1,79 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.configuration.ConfigurationManager
+import dev.binclub.binscure.testConfiguration
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.util.Textifier
+import java.io.File
+import java.nio.file.Files
+import java.util.zip.ZipException
+import java.util.zip.ZipFile
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNotNull
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class ClassPathIOTest {
+	private val jar = File(Textifier::class.java.protectionDomain.codeSource.location.toURI())
+	private val classes = ZipFile(jar).use { zip ->
+		zip.entries().toList().map { it.name }.filter { it.endsWith(".class") }
+	}
+
+	@Test
+	fun loadsEveryClassOfTheClassPath() {
+		val classPath = HashMap<String, ClassNode>()
+		ClassPathIO.loadClassPath(classPath, listOf(jar))
+		assertEquals(classes.map { it.removeSuffix(".class") }.toSet(), classPath.keys)
+	}
+
+	@Test
+	fun visitsEveryClassEntryWithItsJarOpen() {
+		val visited = ArrayList<String>()
+		var last: Pair<MappedZip, MappedZip.Entry>? = null
+		ClassPathIO.forEachClassPathEntry(listOf(jar).iterator()) { file, zip, entry ->
+			assertEquals(jar, file)
+			assertNotNull(zip.bytes(entry))
+			visited.add(entry.name)
+			last = zip to entry
+		}
+		assertEquals(classes.sorted(), visited.sorted())
+
+		val (zip, entry) = assertNotNull(last)
+		assertFailsWith<ZipException> { zip.bytes(entry) }
+	}
+
+	private fun readSample(keepReaders: Boolean): ClassSources {
+		ConfigurationManager.rootConfig = testConfiguration()
+		val directory = Files.createTempDirectory("binscure").toFile()
+		try {
+			val file = File(directory, "Sample.class")
+			file.writeBytes(SampleClass.bytes)
+			return ClassSources(emptyMap()).also {
+				it.keepReaders = keepReaders
+				ClassPathIO.loadInputJar(it, file)
+			}
+		} finally {
+			directory.deleteRecursively()
+		}
+	}
+
+	@Test
+	fun keepsTheReadersOfInputClasses() {
+		val source = readSample(keepReaders = true)
+		val classNode = source.classes.getValue(SampleClass.NAME)
+		assertEquals(setOf(classNode), source.originalReaders.keys)
+		assertEquals(classNode.methods.toSet(), source.originalFrames.keys)
+	}
+
+	@Test
+	fun dropsTheReadersOfInputClassesUnlessKept() {
+		val source = readSample(keepReaders = false)
+		val classNode = source.classes.getValue(SampleClass.NAME)
+		assertTrue(source.originalReaders.isEmpty())
+		assertEquals(classNode.methods.toSet(), source.originalFrames.keys)
+	}
+}
@@ -0,0 +1,86 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.configuration.ConfigurationManager
+import dev.binclub.binscure.testConfiguration
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.tree.ClassNode
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class ClassSourcesTest {
+	private val sources: ClassSources
+
+	init {
+		ConfigurationManager.rootConfig = testConfiguration().copy(ignoreClassPathNotFound = true)
+		sources = ClassSources(emptyMap())
+		add("test/Base", "java/lang/Object")
+		add("test/Left", "test/Base")
+		add("test/Right", "test/Base")
+		add("test/LeftChild", "test/Left", "test/Marker")
+		add("test/Marker", "java/lang/Object", access = ACC_PUBLIC or ACC_INTERFACE or ACC_ABSTRACT)
+		add("test/SubMarker", "java/lang/Object", "test/Marker", access = ACC_PUBLIC or ACC_INTERFACE or ACC_ABSTRACT)
+		add("test/Orphan", "test/Missing")
+		sources.reconstructHierarchy()
+	}
+
+	private fun add(name: String, superName: String, vararg interfaces: String, access: Int = ACC_PUBLIC) {
+		sources.classes[name] = ClassNode().also {
+			it.version = V1_8
+			it.access = access
+			it.name = name
+			it.superName = superName
+			it.interfaces = interfaces.toMutableList()
+		}
+	}
+
+	private fun assertCommonSuperClass(expected: String, type1: String, type2: String) {
+		assertEquals(expected, sources.getCommonSuperClass(type1, type2), "$type1 and $type2")
+		assertEquals(expected, sources.getCommonSuperClass(type2, type1), "$type2 and $type1")
+	}
+
+	@Test
+	fun commonSuperClassOfSiblings() {
+		assertCommonSuperClass("test/Base", "test/Left", "test/Right")
+		assertCommonSuperClass("test/Base", "test/LeftChild", "test/Right")
+	}
+
+	@Test
+	fun commonSuperClassOfASubclass() {
+		assertCommonSuperClass("test/Left", "test/LeftChild", "test/Left")
+		assertCommonSuperClass("test/Base", "test/LeftChild", "test/Base")
+		assertCommonSuperClass("test/Left", "test/Left", "test/Left")
+	}
+
+	@Test
+	fun commonSuperClassOfInterfaces() {
+		assertCommonSuperClass("test/Marker", "test/LeftChild", "test/Marker")
+		assertCommonSuperClass("test/Marker", "test/SubMarker", "test/Marker")
+		assertCommonSuperClass("java/lang/Object", "test/Right", "test/Marker")
+		assertCommonSuperClass("java/lang/Object", "test/LeftChild", "test/SubMarker")
+	}
+
+	@Test
+	fun commonSuperClassOfUnknownClasses() {
+		assertCommonSuperClass("java/lang/Object", "test/Left", "test/Missing")
+		assertCommonSuperClass("java/lang/Object", "test/Orphan", "test/Left")
+	}
+
+	@Test
+	fun commonSuperClassOfPlatformClasses() {
+		assertCommonSuperClass("java/lang/Number", "java/lang/Integer", "java/lang/Long")
+		assertCommonSuperClass("java/lang/Object", "java/lang/Integer", "test/Base")
+		assertCommonSuperClass("java/lang/Exception", "java/io/IOException", "java/lang/RuntimeException")
+	}
+
+	@Test
+	fun hierarchyHoldsEverySubclass() {
+		val children = sources.getHierarchy("test/Base")!!.children.map { it.getName() }.toSet()
+		assertEquals(setOf("test/Left", "test/Right"), children)
+		val implementations = sources.getHierarchy("test/Marker")!!.children.map { it.getName() }.toSet()
+		assertEquals(setOf("test/LeftChild", "test/SubMarker"), implementations)
+		assertEquals(setOf("test/Left", "test/Base", "test/Marker", "java/lang/Object"), sources.getHierarchy("test/LeftChild")!!.allParents)
+	}
+}
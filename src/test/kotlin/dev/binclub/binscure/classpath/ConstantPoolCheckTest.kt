@@ -0,0 +1,68 @@
+package dev.binclub.binscure.classpath
+
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.FieldNode
+import org.objectweb.asm.tree.LdcInsnNode
+import org.objectweb.asm.tree.MethodNode
+import kotlin.test.Test
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class ConstantPoolCheckTest {
+	private val reader = ClassReader(SampleClass.bytes)
+	private val classNode = SampleClass.read()
+	private val frames = HashMap<MethodNode, OriginalFrames>()
+
+	init {
+		OriginalFrames.strip(classNode, frames)
+	}
+
+	private fun isStillReferenced() = ConstantPoolCheck.isStillReferenced(reader, classNode, frames.values)
+
+	private fun ldc(value: Any) = classNode.methods.first { it.name == "secret" }.instructions
+		.first { it is LdcInsnNode && it.cst == value } as LdcInsnNode
+
+	@Test
+	fun unchangedClassesMayCopyTheirConstants() {
+		assertTrue(isStillReferenced())
+	}
+
+	@Test
+	fun addedConstantsMayCopyTheConstants() {
+		classNode.fields.add(FieldNode(Opcodes.ACC_STATIC, "added", "J", null, 42L))
+		assertTrue(isStillReferenced())
+	}
+
+	@Test
+	fun removedStringsAreNotCopied() {
+		ldc("the secret").cst = "encrypted"
+		assertFalse(isStillReferenced())
+	}
+
+	@Test
+	fun removedNumbersAreNotCopied() {
+		ldc(0x5EC2E7).cst = 7
+		assertFalse(isStillReferenced())
+	}
+
+	@Test
+	fun removedNamesAreNotCopied() {
+		classNode.methods.first { it.name == "secret" }.name = "a"
+		assertFalse(isStillReferenced())
+	}
+
+	@Test
+	fun removedDebugInformationIsNotCopied() {
+		classNode.sourceFile = null
+		assertFalse(isStillReferenced())
+	}
+
+	@Test
+	fun typesOnlyUsedByFramesAreReferencedByTheFrames() {
+		assertFalse(ConstantPoolCheck.isStillReferenced(reader, classNode, emptyList()))
+	}
+}
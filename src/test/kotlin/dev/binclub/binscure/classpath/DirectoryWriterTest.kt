@@ -0,0 +1,74 @@
+package dev.binclub.binscure.classpath
+
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class DirectoryWriterTest {
+	private val directory = Files.createTempDirectory("binscure").toFile()
+	private val output = File(directory, "out")
+
+	@AfterTest
+	fun deleteDirectory() {
+		directory.deleteRecursively()
+	}
+
+	private fun write(entries: Map<String, ByteArray>) {
+		DirectoryWriter(output).use { writer ->
+			for ((name, bytes) in entries) {
+				writer.write(name, writer.prepare(name, bytes))
+			}
+		}
+	}
+
+	@Test
+	fun writesEntriesAsFiles() {
+		write(linkedMapOf(
+			"a/" to ByteArray(0),
+			"a/B.class" to byteArrayOf(1, 2, 3),
+			"c/d/e.txt" to "e".toByteArray()
+		))
+		assertTrue(File(output, "a").isDirectory)
+		assertContentEquals(byteArrayOf(1, 2, 3), File(output, "a/B.class").readBytes())
+		assertContentEquals("e".toByteArray(), File(output, "c/d/e.txt").readBytes())
+	}
+
+	@Test
+	fun replacesItsPreviousOutput() {
+		write(mapOf("old.txt" to byteArrayOf(1)))
+		write(mapOf("new.txt" to byteArrayOf(2)))
+		assertFalse(File(output, "old.txt").exists())
+		assertTrue(File(output, "new.txt").isFile)
+	}
+
+	@Test
+	fun refusesEntriesOutsideOfTheDirectory() {
+		assertFailsWith<IOException> { write(mapOf("../escaped.txt" to byteArrayOf(1))) }
+		assertFalse(File(directory, "escaped.txt").exists())
+	}
+
+	@Test
+	fun keepsDirectoriesItDidNotWrite() {
+		output.mkdirs()
+		val foreign = File(output, "foreign.txt")
+		foreign.writeText("foreign")
+		assertFailsWith<IOException> { write(mapOf("a" to byteArrayOf(1))) }
+		assertTrue(foreign.isFile)
+	}
+
+	@Test
+	fun keepsFilesInPlaceOfTheDirectory() {
+		output.writeText("file")
+		assertFailsWith<IOException> { write(mapOf("a" to byteArrayOf(1))) }
+		assertTrue(output.isFile)
+	}
+}
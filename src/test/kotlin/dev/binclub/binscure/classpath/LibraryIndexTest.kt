@@ -0,0 +1,68 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.classpath.tree.ClassSummaryTreeEntry
+import dev.binclub.binscure.classpath.tree.ClassTreeEntry
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.util.Textifier
+import java.io.File
+import java.nio.file.Files
+import java.util.zip.ZipFile
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class LibraryIndexTest {
+	private val directory = Files.createTempDirectory("binscure").toFile()
+
+	@AfterTest
+	fun deleteDirectory() {
+		directory.deleteRecursively()
+	}
+
+	private fun jar() = File(Textifier::class.java.protectionDomain.codeSource.location.toURI())
+
+	private fun summaries(jar: File): List<Pair<String, ClassTreeEntry>> = ZipFile(jar).use { zip ->
+		zip.entries().toList().filter { it.name.endsWith(".class") }.map { entry ->
+			entry.name to ClassSummaryTreeEntry.read(ClassReader(zip.getInputStream(entry).readBytes()))
+		}
+	}
+
+	@Test
+	fun readsBackWhatWasIndexed() {
+		val jar = jar()
+		val file = LibraryIndex.indexFile(directory, jar)
+		assertNull(LibraryIndex.open(file))
+
+		val classes = summaries(jar)
+		LibraryIndex.write(file, classes)
+		val index = assertNotNull(LibraryIndex.open(file))
+
+		assertEquals(classes.size, index.size)
+		for ((i, pair) in classes.withIndex()) {
+			val (entryName, expected) = pair
+			val actual = index.entry(i)
+			assertEquals(entryName, index.entryName(i))
+			assertEquals(expected.getName(), index.name(i))
+			assertEquals(expected.getName(), actual.getName())
+			assertEquals(expected.getDirectSuper(), actual.getDirectSuper())
+			assertEquals(expected.getSuperClasses(), actual.getSuperClasses())
+			assertEquals(expected.getAccess(), actual.getAccess())
+			assertEquals(expected.getMethods(), actual.getMethods())
+			assertEquals(expected.getFields(), actual.getFields())
+		}
+	}
+
+	@Test
+	fun changedJarsGetANewIndex() {
+		val jar = File(directory, "lib.jar")
+		jar().copyTo(jar)
+		val before = LibraryIndex.indexFile(directory, jar)
+		jar.setLastModified(jar.lastModified() - 60_000)
+		assertEquals(false, before == LibraryIndex.indexFile(directory, jar))
+	}
+}
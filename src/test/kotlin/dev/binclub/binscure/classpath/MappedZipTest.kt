@@ -0,0 +1,123 @@
+package dev.binclub.binscure.classpath
+
+import java.io.File
+import java.nio.file.Files
+import java.util.zip.ZipEntry
+import java.util.zip.ZipException
+import java.util.zip.ZipOutputStream
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+/**
+ * [MappedZip] reading archives written by [ZipOutputStream]
+ *
+ * @author cook 18/Oct/2026
+ */
+class MappedZipTest {
+	private val directory = Files.createTempDirectory("binscure").toFile()
+
+	@AfterTest
+	fun deleteDirectory() {
+		directory.deleteRecursively()
+	}
+
+	private fun contents(i: Int) = "entry $i ".repeat(i % 50 + 1).toByteArray()
+
+	private fun write(name: String, entries: Map<String, ByteArray>, method: Int = ZipEntry.DEFLATED): File {
+		val file = File(directory, name)
+		ZipOutputStream(file.outputStream()).use { out ->
+			out.setMethod(method)
+			for ((entry, bytes) in entries) {
+				out.putNextEntry(ZipEntry(entry).apply {
+					if (method == ZipEntry.STORED) {
+						size = bytes.size.toLong()
+						crc = java.util.zip.CRC32().also { it.update(bytes) }.value
+					}
+				})
+				out.write(bytes)
+				out.closeEntry()
+			}
+		}
+		return file
+	}
+
+	private fun assertReads(entries: Map<String, ByteArray>, file: File) {
+		MappedZip(file).use { zip ->
+			assertEquals(entries.keys.toList(), zip.entries.map { it.name })
+			for ((name, bytes) in entries) {
+				assertContentEquals(bytes, zip.bytes(name), name)
+			}
+		}
+	}
+
+	@Test
+	fun readsStoredAndDeflatedEntries() {
+		val entries = linkedMapOf(
+			"META-INF/" to ByteArray(0),
+			"META-INF/MANIFEST.MF" to "Manifest-Version: 1.0\n".toByteArray(),
+			"a/B.class" to contents(20),
+			"empty" to ByteArray(0),
+			"ünicode.txt" to contents(3)
+		)
+		assertReads(entries, write("deflated.jar", entries))
+		assertReads(entries, write("stored.jar", entries, ZipEntry.STORED))
+
+		MappedZip(File(directory, "stored.jar")).use { zip ->
+			assertEquals(MappedZip.STORED, zip["a/B.class"]!!.method)
+		}
+		MappedZip(File(directory, "deflated.jar")).use { zip ->
+			assertEquals(MappedZip.DEFLATED, zip["a/B.class"]!!.method)
+		}
+	}
+
+	@Test
+	fun readsZip64WithManyEntries() {
+		val entries = (0 until 0x10100).associateTo(LinkedHashMap()) { "e/$it" to contents(it) }
+		assertReads(entries, write("zip64.jar", entries, ZipEntry.STORED))
+	}
+
+	@Test
+	fun missingEntriesAreNull() {
+		MappedZip(write("one.jar", mapOf("a" to contents(1)))).use { zip ->
+			assertEquals(null, zip["b"])
+			assertEquals(null, zip.bytes("b"))
+		}
+	}
+
+	@Test
+	fun rejectsFilesThatAreNotArchives() {
+		val file = File(directory, "text.jar")
+		file.writeText("not an archive")
+		assertFailsWith<ZipException> { MappedZip(file) }
+	}
+
+	@Test
+	fun closedArchivesCannotBeRead() {
+		val zip = MappedZip(write("closed.jar", mapOf("a" to contents(1))))
+		val entry = zip["a"]!!
+		zip.close()
+		assertFailsWith<ZipException> { zip.bytes(entry) }
+	}
+
+	@Test
+	fun readsArchivesWithPrependedData() {
+		val entries = (0 until 10).associateTo(LinkedHashMap()) { "entry$it" to contents(it) }
+		val zip = write("plain.jar", entries)
+		val prefixed = File(directory, "prefixed.jar")
+		prefixed.writeBytes("#!/bin/sh\nexec java -jar \"\$0\" \"\$@\"\n".toByteArray() + zip.readBytes())
+		assertReads(entries, prefixed)
+
+		val many = (0 until 0x10100).associateTo(LinkedHashMap()) { "e/$it" to contents(it) }
+		val zip64 = write("plain64.jar", many, ZipEntry.STORED)
+		val prefixed64 = File(directory, "prefixed64.jar")
+		prefixed64.writeBytes(ByteArray(1000) { it.toByte() } + zip64.readBytes())
+		MappedZip(prefixed64).use { mapped ->
+			assertEquals(many.size, mapped.size)
+			assertContentEquals(many["e/0"], mapped.bytes("e/0"))
+			assertContentEquals(many["e/65791"], mapped.bytes("e/65791"))
+		}
+	}
+}
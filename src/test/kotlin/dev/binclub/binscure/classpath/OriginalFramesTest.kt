@@ -0,0 +1,148 @@
+package dev.binclub.binscure.classpath
+
+import dev.binclub.binscure.classpath.OriginalFrames.Change
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import org.objectweb.asm.tree.*
+import org.objectweb.asm.util.Textifier
+import org.objectweb.asm.util.TraceMethodVisitor
+import java.io.PrintWriter
+import java.io.StringWriter
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class OriginalFramesTest {
+	private val classNode = SampleClass.read()
+	private val frames = HashMap<MethodNode, OriginalFrames>()
+	private val kept = OriginalFrames.strip(classNode, frames)
+
+	private fun method(name: String) = classNode.methods.first { it.name == name }
+
+	private fun change(name: String) = method(name).let { frames.getValue(it).compare(classNode, it) }
+
+	/** The text of every method of [bytes], with its frames */
+	private fun text(bytes: ByteArray): List<String> {
+		val classNode = ClassNode().also { ClassReader(bytes).accept(it, 0) }
+		return classNode.methods.map { method ->
+			val textifier = Textifier()
+			method.accept(TraceMethodVisitor(textifier))
+			StringWriter().also { textifier.print(PrintWriter(it)) }.toString()
+		}
+	}
+
+	@Test
+	fun framesAreTakenOutOfTheInstructions() {
+		assertTrue(kept)
+		assertEquals(classNode.methods.toSet(), frames.keys)
+		for (method in classNode.methods) {
+			assertFalse(method.instructions.any { it is FrameNode }, method.name)
+		}
+		assertEquals(classNode.methods.indices.toList(), classNode.methods.map { frames.getValue(it).index })
+	}
+
+	@Test
+	fun unchangedMethodsAreUnchanged() {
+		for (method in classNode.methods) {
+			assertEquals(Change.NONE, change(method.name), method.name)
+		}
+	}
+
+	@Test
+	fun writesTheOriginalFrames() {
+		val writer = ClassWriter(0)
+		writer.visit(classNode.version, classNode.access, classNode.name, null, classNode.superName, null)
+		for (method in classNode.methods) {
+			val visitor = writer.visitMethod(method.access, method.name, method.desc, method.signature, null)
+			method.accept(frames.getValue(method).writer(visitor))
+		}
+		writer.visitEnd()
+		assertEquals(text(SampleClass.bytes), text(writer.toByteArray()))
+	}
+
+	@Test
+	fun renamedMethodsAreUnchanged() {
+		method("secret").name = "a"
+		assertEquals(Change.NONE, change("a"))
+	}
+
+	@Test
+	fun unusedLabelsAreNotPartOfTheCode() {
+		val box = method("box")
+		box.instructions.insert(box.instructions.first, LabelNode())
+		assertEquals(Change.NONE, change("box"))
+	}
+
+	@Test
+	fun changedInstructionsChangeTheCode() {
+		val secret = method("secret")
+		secret.instructions.first { it is LdcInsnNode && it.cst == "the secret" }.let { (it as LdcInsnNode).cst = "other" }
+		assertEquals(Change.CODE, change("secret"))
+
+		val box = method("box")
+		box.instructions.insert(InsnNode(Opcodes.NOP))
+		assertEquals(Change.CODE, change("box"))
+		assertEquals(Change.NONE, change("<init>"))
+	}
+
+	@Test
+	fun changedJumpsChangeTheCode() {
+		val box = method("box")
+		val jump = box.instructions.first { it.opcode == Opcodes.GOTO } as JumpInsnNode
+		jump.label = box.instructions.filterIsInstance<LabelNode>().first()
+		assertEquals(Change.CODE, change("box"))
+	}
+
+	@Test
+	fun debugInformationOnlyChangesTheDeclaration() {
+		val box = method("box")
+		box.localVariables.single().name = "two"
+		assertEquals(Change.DECLARATION, change("box"))
+
+		val secret = method("secret")
+		secret.visitAnnotation("Ltest/Marker;", false)
+		assertEquals(Change.DECLARATION, change("secret"))
+	}
+
+	@Test
+	fun lineNumbersAreDeclarations() {
+		val box = method("box")
+		(box.instructions.first { it is LineNumberNode } as LineNumberNode).line = 20
+		assertEquals(Change.DECLARATION, change("box"))
+
+		box.instructions.remove(box.instructions.first { it is LineNumberNode })
+		assertEquals(Change.DECLARATION, change("box"))
+	}
+
+	@Test
+	fun framesAreMovedToCopiesOfTheClass() {
+		val previous = classNode.methods.toList()
+		val writer = ClassWriter(0)
+		classNode.accept(writer)
+		val copy = ClassNode().also { ClassReader(writer.toByteArray()).accept(it, 0) }
+		classNode.methods = copy.methods
+
+		OriginalFrames.rebind(classNode, previous, frames)
+		assertEquals(classNode.methods.toSet(), frames.keys)
+		for (method in classNode.methods) {
+			assertEquals(Change.NONE, change(method.name), method.name)
+		}
+	}
+
+	@Test
+	fun classesOlderThanJava7KeepNoFrames() {
+		val old = SampleClass.read()
+		old.version = Opcodes.V1_6
+		val oldFrames = HashMap<MethodNode, OriginalFrames>()
+		assertFalse(OriginalFrames.strip(old, oldFrames))
+		assertTrue(oldFrames.isEmpty())
+		for (method in old.methods) {
+			assertFalse(method.instructions.any { it is FrameNode }, method.name)
+		}
+	}
+}
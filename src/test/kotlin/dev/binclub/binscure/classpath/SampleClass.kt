@@ -0,0 +1,106 @@
+package dev.binclub.binscure.classpath
+
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Label
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.tree.ClassNode
+
+/**
+ * A Java 8 class with stack map frames, including frames with uninitialized values and types only used by a frame,
+ * debug information and constants only used by its code
+ *
+ * @author cook 18/Oct/2026
+ */
+object SampleClass {
+	const val NAME = "test/Sample"
+
+	val bytes: ByteArray by lazy {
+		val writer = ClassWriter(ClassWriter.COMPUTE_FRAMES)
+		writer.visit(V1_8, ACC_PUBLIC or ACC_SUPER, NAME, null, "java/lang/Object", null)
+		writer.visitSource("Sample.java", null)
+
+		writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null).apply {
+			visitCode()
+			visitVarInsn(ALOAD, 0)
+			visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false)
+			visitInsn(RETURN)
+			visitMaxs(0, 0)
+			visitEnd()
+		}
+
+		// Boxes 1 or 2, the branch is taken between the new instruction and the constructor call
+		writer.visitMethod(ACC_PUBLIC or ACC_STATIC, "box", "(Z)Ljava/lang/Integer;", null, null).apply {
+			val start = Label()
+			val two = Label()
+			val call = Label()
+			val end = Label()
+			visitCode()
+			visitLabel(start)
+			visitLineNumber(10, start)
+			visitTypeInsn(NEW, "java/lang/Integer")
+			visitInsn(DUP)
+			visitVarInsn(ILOAD, 0)
+			visitJumpInsn(IFEQ, two)
+			visitInsn(ICONST_1)
+			visitJumpInsn(GOTO, call)
+			visitLabel(two)
+			visitLineNumber(11, two)
+			visitInsn(ICONST_2)
+			visitLabel(call)
+			visitMethodInsn(INVOKESPECIAL, "java/lang/Integer", "<init>", "(I)V", false)
+			visitInsn(ARETURN)
+			visitLabel(end)
+			visitLocalVariable("one", "Z", null, start, end, 0)
+			visitMaxs(0, 0)
+			visitEnd()
+		}
+
+		// A string and a number only used here
+		writer.visitMethod(ACC_PUBLIC or ACC_STATIC, "secret", "(I)Ljava/lang/String;", null, null).apply {
+			val other = Label()
+			visitCode()
+			visitVarInsn(ILOAD, 0)
+			visitLdcInsn(0x5EC2E7)
+			visitJumpInsn(IF_ICMPNE, other)
+			visitLdcInsn("the secret")
+			visitInsn(ARETURN)
+			visitLabel(other)
+			visitInsn(ACONST_NULL)
+			visitInsn(ARETURN)
+			visitMaxs(0, 0)
+			visitEnd()
+		}
+
+		writer.visitMethod(ACC_PUBLIC or ACC_STATIC, "text", "()Ljava/lang/CharSequence;", null, null).apply {
+			visitCode()
+			visitInsn(ACONST_NULL)
+			visitInsn(ARETURN)
+			visitMaxs(0, 0)
+			visitEnd()
+		}
+
+		// java/lang/CharSequence is only in the frame of the second return, as the type of a local
+		writer.visitMethod(ACC_PUBLIC or ACC_STATIC, "isNull", "()Z", null, null).apply {
+			val notNull = Label()
+			visitCode()
+			visitMethodInsn(INVOKESTATIC, NAME, "text", "()Ljava/lang/CharSequence;", false)
+			visitVarInsn(ASTORE, 0)
+			visitVarInsn(ALOAD, 0)
+			visitJumpInsn(IFNONNULL, notNull)
+			visitInsn(ICONST_1)
+			visitInsn(IRETURN)
+			visitLabel(notNull)
+			visitInsn(ICONST_0)
+			visitInsn(IRETURN)
+			visitMaxs(0, 0)
+			visitEnd()
+		}
+
+		writer.visitEnd()
+		writer.toByteArray()
+	}
+
+	/** The class as the obfuscator reads an input class, with its frames */
+	fun read(): ClassNode = ClassNode().also { ClassReader(bytes).accept(it, 0) }
+}
@@ -0,0 +1,150 @@
+package dev.binclub.binscure.classpath
+
+import java.io.File
+import java.nio.file.Files
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+import java.util.zip.ZipFile
+import kotlin.test.AfterTest
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+
+/**
+ * [ZipWriter] archives read back with [MappedZip] and [ZipFile]
+ *
+ * @author cook 18/Oct/2026
+ */
+class ZipWriterTest {
+	private val directory = Files.createTempDirectory("binscure").toFile()
+
+	@AfterTest
+	fun deleteDirectory() {
+		directory.deleteRecursively()
+	}
+
+	private fun contents(i: Int) = "entry $i ".repeat(i % 50 + 1).toByteArray()
+
+	private fun write(name: String, entries: Map<String, ByteArray>, compress: Boolean = true): File {
+		val file = File(directory, name)
+		ZipWriter(file).use { writer ->
+			for ((entry, bytes) in entries) {
+				writer.write(entry, writer.prepare(entry, bytes, compress))
+			}
+		}
+		return file
+	}
+
+	private fun assertReads(entries: Map<String, ByteArray>, file: File) {
+		MappedZip(file).use { zip ->
+			assertEquals(entries.keys.toList(), zip.entries.map { it.name })
+			for ((name, bytes) in entries) {
+				assertContentEquals(bytes, zip.bytes(name), name)
+			}
+		}
+		ZipFile(file).use { zip ->
+			assertEquals(entries.size, zip.size())
+			for ((name, bytes) in entries) {
+				val entry = assertNotNull(zip.getEntry(name), name)
+				assertContentEquals(bytes, zip.getInputStream(entry).readBytes(), name)
+			}
+		}
+	}
+
+	@Test
+	fun roundTrip() {
+		val entries = linkedMapOf(
+			"META-INF/" to ByteArray(0),
+			"META-INF/MANIFEST.MF" to "Manifest-Version: 1.0\n".toByteArray(),
+			"a/B.class" to contents(20),
+			"empty" to ByteArray(0),
+			"ünicode.txt" to contents(3)
+		)
+		assertReads(entries, write("deflated.jar", entries))
+		assertReads(entries, write("stored.jar", entries, compress = false))
+
+		MappedZip(File(directory, "stored.jar")).use { zip ->
+			assertEquals(MappedZip.STORED, zip["a/B.class"]!!.method)
+		}
+		MappedZip(File(directory, "deflated.jar")).use { zip ->
+			assertEquals(MappedZip.DEFLATED, zip["a/B.class"]!!.method)
+		}
+	}
+
+	@Test
+	fun levelZeroStoresEveryEntry() {
+		val file = File(directory, "level0.jar")
+		ZipWriter(file, Deflater.NO_COMPRESSION).use { writer ->
+			writer.write("a", writer.prepare("a", contents(10)))
+		}
+		MappedZip(file).use { zip ->
+			assertEquals(MappedZip.STORED, zip["a"]!!.method)
+			assertContentEquals(contents(10), zip.bytes("a"))
+		}
+	}
+
+	@Test
+	fun copiesEntriesStillCompressed() {
+		val entries = (0 until 20).associateTo(LinkedHashMap()) { "entry$it" to contents(it) }
+		val input = write("input.jar", entries)
+		val copy = File(directory, "copy.jar")
+		MappedZip(input).use { zip ->
+			ZipWriter(copy).use { writer ->
+				for (entry in zip.entries) {
+					writer.write(entry.name, writer.prepareCopy(entry.name, zip, entry))
+				}
+			}
+		}
+		assertReads(entries, copy)
+		MappedZip(input).use { from ->
+			MappedZip(copy).use { to ->
+				for ((original, copied) in from.entries.zip(to.entries)) {
+					assertEquals(original.method, copied.method, original.name)
+					assertEquals(original.crc, copied.crc, original.name)
+					assertEquals(original.compressedSize, copied.compressedSize, original.name)
+					assertEquals(from.compressedBytes(original), to.compressedBytes(copied), original.name)
+				}
+			}
+		}
+	}
+
+	@Test
+	fun writesOverTheArchiveItCopiesFrom() {
+		val entries = (0 until 200).associateTo(LinkedHashMap()) { "entry$it" to contents(it) }
+		val file = write("in-place.jar", entries)
+		MappedZip(file).use { zip ->
+			ZipWriter(file).use { writer ->
+				for (entry in zip.entries) {
+					writer.write(entry.name, writer.prepareCopy(entry.name, zip, entry))
+				}
+				writer.write("added", writer.prepare("added", contents(1)))
+			}
+		}
+		assertReads(entries + ("added" to contents(1)), file)
+		assertEquals(listOf("in-place.jar"), directory.list()!!.toList())
+	}
+
+	@Test
+	fun keepsDuplicateNamesAndGivenChecksums() {
+		val file = File(directory, "duplicates.jar")
+		ZipWriter(file).use { writer ->
+			writer.write("a", contents(1))
+			writer.write("a", contents(2), 0xDEADBEEF)
+		}
+		MappedZip(file).use { zip ->
+			assertEquals(listOf("a", "a"), zip.entries.map { it.name })
+			val crc = CRC32().also { it.update(contents(1)) }.value
+			assertEquals(crc, zip.entries[0].crc)
+			assertEquals(0xDEADBEEF, zip.entries[1].crc)
+			assertContentEquals(contents(2), zip.bytes(zip.entries[1]))
+		}
+	}
+
+	@Test
+	fun writesZip64WithManyEntries() {
+		val entries = (0 until 0x10100).associateTo(LinkedHashMap()) { "e/$it" to contents(it) }
+		val file = write("zip64.jar", entries, compress = false)
+		assertReads(entries, file)
+	}
+}
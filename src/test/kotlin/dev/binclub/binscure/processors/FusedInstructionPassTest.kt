@@ -0,0 +1,78 @@
+package dev.binclub.binscure.processors
+
+import dev.binclub.binscure.CObfuscatorTest
+import dev.binclub.binscure.IClassProcessor
+import dev.binclub.binscure.ProcessorSchedulerTest
+import dev.binclub.binscure.api.transformers.KotlinMetadataConfiguration
+import dev.binclub.binscure.api.transformers.RemapConfiguration
+import dev.binclub.binscure.api.transformers.SourceStripConfiguration
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.configuration.ConfigurationManager
+import dev.binclub.binscure.processors.debug.KotlinMetadataStripper
+import dev.binclub.binscure.processors.debug.SourceStripper
+import dev.binclub.binscure.processors.flow.jump.JumpRearranger
+import dev.binclub.binscure.processors.renaming.impl.LocalVariableRenamer
+import dev.binclub.binscure.testConfiguration
+import org.objectweb.asm.ClassReader
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.tree.AbstractInsnNode
+import org.objectweb.asm.tree.ClassNode
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class FusedInstructionPassTest {
+	private val source: ClassSources
+
+	init {
+		ConfigurationManager.rootConfig = testConfiguration().copy(
+			remap = RemapConfiguration(true),
+			sourceStrip = SourceStripConfiguration(true),
+			kotlinMetadata = KotlinMetadataConfiguration(true)
+		)
+		source = ClassSources(emptyMap())
+	}
+
+	private fun rewriters(): Array<IClassProcessor> =
+		arrayOf(SourceStripper(source), KotlinMetadataStripper(source), LocalVariableRenamer(source))
+
+	/** Kotlin compiled classes, which carry line numbers, local variables and parameter checks */
+	private fun classes(): List<ClassNode> = listOf(
+		CObfuscatorTest::class.java,
+		ProcessorSchedulerTest::class.java,
+		FusedInstructionPassTest::class.java
+	).map { type -> ClassNode().also { ClassReader(type.name).accept(it, 0) } }
+
+	private fun bytes(classes: List<ClassNode>): List<List<Byte>> =
+		classes.map { ClassWriter(0).also(it::accept).toByteArray().toList() }
+
+	@Test
+	fun fusedRewritersGiveTheSameOutput() {
+		val inTurn = classes()
+		for (processor in rewriters()) {
+			processor.process(source, inTurn.toMutableList(), source.passThrough)
+		}
+		val fused = classes()
+		FusedInstructionPass(source, rewriters().toList()).process(source, fused.toMutableList(), source.passThrough)
+
+		assertContentEquals(bytes(inTurn), bytes(fused))
+		assertTrue(fused.flatMap { it.methods }.none { method -> method.instructions.any { it.type == AbstractInsnNode.LINE } })
+	}
+
+	@Test
+	fun onlyRunsOfRewritersAreFused() {
+		val rewriters = rewriters()
+		val other = JumpRearranger(source)
+		val fused = FusedInstructionPass.fuse(source, arrayOf(rewriters[0], rewriters[1], other, rewriters[2]))
+
+		assertEquals(3, fused.size)
+		assertTrue(fused[0] is FusedInstructionPass)
+		assertSame(other, fused[1])
+		assertSame(rewriters[2], fused[2])
+	}
+}
@@ -0,0 +1,95 @@
+package dev.binclub.binscure.processors.arithmetic
+
+import dev.binclub.binscure.api.transformers.ArithmeticObfuscationConfiguration
+import dev.binclub.binscure.classpath.ClassSources
+import dev.binclub.binscure.configuration.ConfigurationManager
+import dev.binclub.binscure.testConfiguration
+import dev.binclub.binscure.utils.InstructionModifier
+import dev.binclub.binscure.utils.RandomStreams
+import org.objectweb.asm.Opcodes.*
+import org.objectweb.asm.tree.ClassNode
+import org.objectweb.asm.tree.InsnNode
+import org.objectweb.asm.tree.MethodNode
+import org.objectweb.asm.tree.VarInsnNode
+import org.objectweb.asm.util.Textifier
+import org.objectweb.asm.util.TraceMethodVisitor
+import kotlin.math.max
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class MbaTransformerTest {
+	private val source: ClassSources
+
+	init {
+		ConfigurationManager.rootConfig = testConfiguration().copy(
+			arithmetic = ArithmeticObfuscationConfiguration(true, repeat = 3)
+		)
+		source = ClassSources(emptyMap())
+	}
+
+	/** A class with a method adding, xoring, and'ing and or'ing its two parameters [operations] times */
+	private fun classNode(operations: Int) = ClassNode().apply {
+		version = V1_8
+		access = ACC_PUBLIC
+		name = "test/Arithmetic"
+		superName = "java/lang/Object"
+		methods.add(MethodNode(ACC_PUBLIC or ACC_STATIC, "f", "(II)I", null, null).apply {
+			instructions.add(VarInsnNode(ILOAD, 0))
+			val opcodes = intArrayOf(IADD, IXOR, IAND, IOR, ISUB)
+			for (i in 0 until operations) {
+				instructions.add(VarInsnNode(ILOAD, 1))
+				instructions.add(InsnNode(opcodes[i % opcodes.size]))
+			}
+			instructions.add(InsnNode(IRETURN))
+		})
+	}
+
+	private fun text(classNode: ClassNode): String {
+		val textifier = Textifier()
+		classNode.methods.single().accept(TraceMethodVisitor(textifier))
+		return textifier.text.joinToString("")
+	}
+
+	/** The rounds of substitution as they were done before the transformer became an instruction rewriter */
+	private fun substituteInTurn(transformer: MbaTransformer, classNode: ClassNode) {
+		val list = classNode.methods.single().instructions
+		for (i in 0 until ConfigurationManager.rootConfig.arithmetic.repeat) {
+			val modifier = InstructionModifier()
+			var skip = 0
+			for (op in list) {
+				if (skip > 0) {
+					skip -= 1
+					continue
+				}
+				skip = max(transformer.substitute(op, modifier), 0)
+			}
+			if (modifier.isEmpty()) break
+			modifier.apply(list)
+		}
+	}
+
+	private fun assertSameAsInTurn(operations: Int) {
+		val transformer = MbaTransformer(source)
+		val expected = classNode(operations)
+		RandomStreams.withStream("mba") { substituteInTurn(transformer, expected) }
+		val actual = classNode(operations)
+		RandomStreams.withStream("mba") { transformer.process(source, mutableListOf(actual), source.passThrough) }
+
+		assertTrue(expected.methods.single().instructions.size() > operations * 2 + 2)
+		assertEquals(text(expected), text(actual))
+	}
+
+	@Test
+	fun substitutesAsTheRoundsDidInTurn() {
+		assertSameAsInTurn(50)
+	}
+
+	@Test
+	fun largeMethodsAreSubstitutedInFull() {
+		assertSameAsInTurn(4000)
+	}
+}
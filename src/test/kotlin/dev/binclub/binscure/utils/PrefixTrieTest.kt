@@ -0,0 +1,52 @@
+package dev.binclub.binscure.utils
+
+import kotlin.test.Test
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+/**
+ * @author cook 18/Oct/2026
+ */
+class PrefixTrieTest {
+	@Test
+	fun matchesNamesStartingWithAnyPrefix() {
+		val trie = PrefixTrie(listOf("com/example/", "org/lib/Util", "META-INF/"))
+		assertTrue(trie.matches("com/example/Main.class"))
+		assertTrue(trie.matches("org/lib/Util.class"))
+		assertTrue(trie.matches("org/lib/UtilKt.class"))
+		assertTrue(trie.matches("META-INF/MANIFEST.MF"))
+		assertFalse(trie.matches("com/other/Main.class"))
+		assertFalse(trie.matches("org/lib/Helper.class"))
+	}
+
+	@Test
+	fun matchesNamesEqualToAPrefix() {
+		val trie = PrefixTrie(listOf("a/b"))
+		assertTrue(trie.matches("a/b"))
+		assertFalse(trie.matches("a/"))
+		assertFalse(trie.matches(""))
+	}
+
+	@Test
+	fun shorterPrefixesWinOverLongerOnes() {
+		val trie = PrefixTrie(listOf("com/example/deep/", "com/"))
+		assertTrue(trie.matches("com/Main.class"))
+		assertTrue(trie.matches("com/example/Main.class"))
+	}
+
+	@Test
+	fun emptyTrieMatchesNothing() {
+		val trie = PrefixTrie(emptyList())
+		assertTrue(trie.isEmpty)
+		assertFalse(trie.matches(""))
+		assertFalse(trie.matches("a"))
+	}
+
+	@Test
+	fun emptyPrefixMatchesEverything() {
+		val trie = PrefixTrie(listOf(""))
+		assertFalse(trie.isEmpty)
+		assertTrue(trie.matches(""))
+		assertTrue(trie.matches("anything"))
+	}
+}